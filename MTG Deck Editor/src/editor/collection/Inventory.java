@@ -6,21 +6,33 @@ import java.awt.datatransfer.Transferable;
 import java.awt.datatransfer.UnsupportedFlavorException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import editor.collection.category.CategorySpec;
 import editor.database.card.Card;
 import editor.filter.Filter;
+import editor.filter.FilterCache;
 import editor.filter.leaf.BinaryFilter;
+import editor.filter.leaf.NumberIndex;
+import editor.util.BKTree;
+import editor.util.PrefixIndex;
 
 /**
  * This class represents an inventory of cards that can be added to decks.
@@ -31,6 +43,11 @@ import editor.filter.leaf.BinaryFilter;
  */
 public class Inventory implements CardList
 {
+	/**
+	 * Number of previous filter results to remember.
+	 */
+	private static final int FILTER_HISTORY = 8;
+	
 	/**
 	 * TODO: Comment this class
 	 * @author Alec
@@ -70,6 +87,36 @@ public class Inventory implements CardList
 		}
 	}
 	
+	/**
+	 * This class represents the result of filtering the inventory, which is
+	 * remembered so it can be reused or further narrowed down later.
+	 * 
+	 * @author Alec Roelke
+	 */
+	private static class FilterResult
+	{
+		/**
+		 * Filter that was applied.
+		 */
+		private final Filter filter;
+		/**
+		 * Cards that passed through the filter.
+		 */
+		private final List<Card> filtrate;
+		
+		/**
+		 * Create a new FilterResult.
+		 * 
+		 * @param f Filter that was applied
+		 * @param l Cards that passed through it
+		 */
+		private FilterResult(Filter f, List<Card> l)
+		{
+			filter = f;
+			filtrate = l;
+		}
+	}
+	
 	/**
 	 * This class represents the data that can be transferred from an inventory via
 	 * drag and drop or cut/copy/paste.  It supports card and String flavors.
@@ -149,6 +196,20 @@ public class Inventory implements CardList
 	 * Map of Card UIDs onto their Cards.
 	 */
 	private final Map<String, Card> IDs;
+	/**
+	 * Index for finding card names using their beginnings.
+	 */
+	private final PrefixIndex<String> names;
+	/**
+	 * Cards indexed by the normalized names of each of their faces and of the
+	 * whole card.
+	 */
+	private final Map<String, List<Card>> normalizedNames;
+	/**
+	 * Index for finding names that are close to misspelled ones.  It is created the
+	 * first time it is needed.
+	 */
+	private BKTree<String> fuzzyNames;
 	/**
 	 * Filter for Cards in the Inventory pane.
 	 */
@@ -157,6 +218,10 @@ public class Inventory implements CardList
 	 * Filtered view of the master list.
 	 */
 	private List<Card> filtrate;
+	/**
+	 * Results of the most recent filters, with the most recent first.
+	 */
+	private LinkedList<FilterResult> history;
 	
 	/**
 	 * Create an empty inventory.
@@ -175,15 +240,95 @@ public class Inventory implements CardList
 	{
 		cards = new ArrayList<Card>(list);
 		IDs = cards.stream().collect(Collectors.toMap(Card::id, Function.identity()));
+		FilterCache.setCards(cards);
+		NumberIndex.build(cards);
+		Map<String, Set<String>> faceKeys = new LinkedHashMap<String, Set<String>>();
+		for (Card c: cards)
+		{
+			for (int i = 0; i < c.name().size(); i++)
+			{
+				Set<String> keys = faceKeys.computeIfAbsent(c.name()[i], (k) -> new HashSet<String>());
+				keys.add(c.normalizedName()[i]);
+				keys.add(c.legendName()[i]);
+			}
+		}
+		names = new PrefixIndex<String>(faceKeys.keySet(), faceKeys::get);
+		normalizedNames = new HashMap<String, List<Card>>();
+		for (Card c: cards)
+		{
+			Set<String> keys = new HashSet<String>(c.normalizedName());
+			keys.add(Card.normalize(c.unifiedName()));
+			for (String key: keys)
+				normalizedNames.computeIfAbsent(key, (k) -> new ArrayList<Card>()).add(c);
+		}
+		fuzzyNames = null;
 		filter = new CategorySpec("Displayed Inventory", Color.BLACK, new BinaryFilter(true));
 		filtrate = cards;
+		history = new LinkedList<FilterResult>();
 		
 		filter.addCategoryListener((e) -> {
 			if (e.filterChanged())
-				filtrate = cards.stream().filter(filter::includes).collect(Collectors.toList());
+				filtrate = filter(filter.getFilter());
 		});
 	}
 	
+	/**
+	 * Discard the results of previous filters, such as when card tags have changed
+	 * and they may no longer be accurate.
+	 */
+	public synchronized void clearFilterHistory()
+	{
+		history.clear();
+	}
+	
+	/**
+	 * Get the cards in the inventory that pass through a filter.  If the filter
+	 * was used recently, its previous result is reused, and if it is a refinement
+	 * of a recent filter, only the cards that passed through that one are tested.
+	 * Cards are tested using the shared {@link FilterCache}, and cards that can't
+	 * pass through numeric parts of the filter are skipped using the {@link NumberIndex}.
+	 * 
+	 * This can be called from a background thread to prepare the result of a filter
+	 * so that {@link #updateFilter(Filter)} doesn't have to test any cards.  If
+	 * that thread is interrupted, filtering stops and the result is discarded.
+	 * 
+	 * @param f Filter to apply
+	 * @return The list of cards that pass through the filter.
+	 * @throws CancellationException If the current thread is interrupted while
+	 * filtering.
+	 */
+	public synchronized List<Card> filter(Filter f) throws CancellationException
+	{
+		List<Card> source = cards;
+		for (Iterator<FilterResult> it = history.iterator(); it.hasNext();)
+		{
+			FilterResult result = it.next();
+			if (result.filter.equals(f))
+			{
+				it.remove();
+				history.addFirst(result);
+				return result.filtrate;
+			}
+			else if (result.filtrate.size() < source.size() && f.refines(result.filter))
+				source = result.filtrate;
+		}
+		Predicate<Card> includes = FilterCache.cached(f);
+		BitSet candidates = NumberIndex.candidates(f);
+		List<Card> result = new ArrayList<Card>();
+		for (Card c: source)
+		{
+			if (Thread.currentThread().isInterrupted())
+				throw new CancellationException("Filtering was interrupted");
+			int id = FilterCache.id(c);
+			if ((candidates == null || id < 0 || candidates.get(id)) && includes.test(c))
+				result.add(c);
+		}
+		history.addFirst(new FilterResult(f.copy(), result));
+		while (history.size() > FILTER_HISTORY)
+			history.removeLast();
+		return result;
+	}
+	
 	@Override
 	public boolean add(Card c)
 	{
@@ -214,6 +359,59 @@ public class Inventory implements CardList
 		throw new UnsupportedOperationException();
 	}
 	
+	/**
+	 * Find the names of cards that begin with a prefix, ignoring case and special
+	 * characters.  Legendary cards can also be found using their names without
+	 * titles.
+	 * 
+	 * @param prefix Beginning of the names to find
+	 * @param k Maximum number of names to find
+	 * @return A list of up to the given number of card names beginning with the
+	 * prefix in alphabetical order.
+	 */
+	public List<String> completions(String prefix, int k)
+	{
+		return names.complete(Card.normalize(prefix), k);
+	}
+	
+	/**
+	 * Find the cards with a name, ignoring case and special characters.  If there
+	 * aren't any, then find the cards with the closest name within an edit distance.
+	 * Cards can be found by the names of their faces or by their full names.
+	 * 
+	 * @param name Name of the cards to find
+	 * @param maxDistance Maximum number of characters that can be inserted, deleted,
+	 * or substituted to get a card's name
+	 * @return A list containing all printings of the card with the closest name, or
+	 * an empty list if no name is close enough.
+	 */
+	public List<Card> findByName(String name, int maxDistance)
+	{
+		String key = Card.normalize(name.trim());
+		if (!normalizedNames.containsKey(key) && maxDistance > 0)
+		{
+			List<String> closest = fuzzyNames().search(key, maxDistance);
+			if (!closest.isEmpty())
+				key = closest[0];
+		}
+		return Collections.unmodifiableList(normalizedNames.getOrDefault(key, Collections.emptyList()));
+	}
+	
+	/**
+	 * @return The index for finding card names that are close to other Strings,
+	 * creating it if necessary.
+	 */
+	private synchronized BKTree<String> fuzzyNames()
+	{
+		if (fuzzyNames == null)
+		{
+			fuzzyNames = new BKTree<String>();
+			for (String key: normalizedNames.keySet())
+				fuzzyNames.add(key, key);
+		}
+		return fuzzyNames;
+	}
+	
 	/**
 	 * @param Object to look for
 	 * @return <code>true</code> if the inventory contains the given item, and
@@ -306,6 +504,15 @@ public class Inventory implements CardList
 		return cards.iterator();
 	}
 	
+	/**
+	 * @return The index used to find card names using their beginnings.
+	 * @see #completions(String, int)
+	 */
+	public PrefixIndex<String> nameIndex()
+	{
+		return names;
+	}
+	
 	/**
 	 * @return <code>true</code> if there are no cards in the inventory, and
 	 * <code>false</code> otherwise.
@@ -372,9 +579,10 @@ public class Inventory implements CardList
 	 * 
 	 * @param comp Comparator to use for sorting
 	 */
-	public void sort(Comparator<Card> comp)
+	public synchronized void sort(Comparator<Card> comp)
 	{
 		cards.sort(comp);
+		history.clear();
 	}
 
 	/**
@@ -59,10 +59,24 @@ public class LegalityChecker
 	 * TODO: Add deck construction rules for:
 	 * - Tribal Wars Legacy/Standard (1/3 of the cards of the deck must have the same creature type)
 	 * 
-	 * @param deck
+	 * @param deck Deck to check
 	 */
 	public void checkLegality(Deck deck)
 	{
+		checkLegality(deck.snapshot());
+	}
+	
+	/**
+	 * Check which formats a deck is legal in from a snapshot of it.  The snapshot
+	 * doesn't change, so this can be done on a worker thread while the deck is
+	 * being edited.
+	 * 
+	 * @param deck Snapshot of the deck to check
+	 */
+	public void checkLegality(Deck.Snapshot deck)
+	{
+		Map<Card, Integer> counts = deck.counts();
+		
 		// Deck size
 		for (String format: LegalityFilter.formatList)
 		{
@@ -97,22 +111,22 @@ public class LegalityChecker
 		
 		// Individual card legality and count
 		Map<Card, Integer> isoNameCounts = new HashMap<Card, Integer>();
-		for (Card c: deck)
+		for (Card c: counts.keySet())
 		{
 			boolean counted = false;
 			for (Card name: isoNameCounts.keySet())
 			{
 				if (name.compareName(c) == 0)
 				{
-					isoNameCounts.compute(name, (k, v) -> v += deck.getData(name).count());
+					isoNameCounts.compute(name, (k, v) -> v += counts[c]);
 					counted = true;
 					break;
 				}
 			}
 			if (!counted)
-				isoNameCounts[c] = deck.getData(c).count();
+				isoNameCounts[c] = counts[c];
 		}
-		for (Card c: deck)
+		for (Card c: counts.keySet())
 		{
 			for (String format: LegalityFilter.formatList)
 			{
@@ -137,28 +151,26 @@ public class LegalityChecker
 		}
 		
 		// Commander only: commander exists and matches deck color identity
-		List<Card> possibleCommanders = deck.stream().filter(Card::canBeCommander).collect(Collectors.toList());
+		List<Card> possibleCommanders = counts.keySet().stream().filter(Card::canBeCommander).collect(Collectors.toList());
 		if (possibleCommanders.isEmpty())
 			warnings["Commander"].add("Deck does not contain a legendary creature");
 		else
 		{
-			List<ManaType> deckColorIdentityList = new ArrayList<ManaType>();
-			for (Card c: deck)
-				deckColorIdentityList.addAll(c.colors());
-			ManaType.Tuple deckColorIdentity = new ManaType.Tuple(deckColorIdentityList);
-			for (Card c: new ArrayList<Card>(possibleCommanders))
-				if (!c.colors().containsAll(deckColorIdentity))
-					possibleCommanders.remove(c);
+			int deckColorIdentity = 0;
+			for (Card c: counts.keySet())
+				deckColorIdentity |= c.colorIdentityMask();
+			final int deckMask = deckColorIdentity;
+			possibleCommanders.removeIf((c) -> !Containment.CONTAINS_ALL_OF.test(c.colorIdentityMask(), deckMask));
 			if (possibleCommanders.isEmpty())
-				warnings["Commander"].add("Deck does not contain a legendary creature whose color identity contains " + deckColorIdentity.toString());
+				warnings["Commander"].add("Deck does not contain a legendary creature whose color identity contains " + ManaType.Tuple.fromMask(deckMask).toString());
 		}
 		
 		// Prismatic only: there are at least 20 cards of each color, and multicolored cards only count once
 		HashMap<ManaType, List<Card>> colorBins = new HashMap<ManaType, List<Card>>();
 		for (ManaType color: ManaType.values())
 			colorBins[color] = new ArrayList<Card>();
-		for (Card c: deck.stream().sorted((a, b) -> a.colors().size() - b.colors().size()).collect(Collectors.toList()))
-			for (int i = 0; i < deck.getData(c).count(); i++)
+		for (Card c: counts.keySet().stream().sorted((a, b) -> Integer.bitCount(a.colorMask()) - Integer.bitCount(b.colorMask())).collect(Collectors.toList()))
+			for (int i = 0; i < counts[c]; i++)
 				binCard(c, colorBins, new ArrayList<ManaType>());
 		for (ManaType bin: colorBins.keySet())
 		{
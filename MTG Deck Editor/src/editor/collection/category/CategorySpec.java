@@ -1,20 +1,18 @@
 package editor.collection.category;
 
 import java.awt.Color;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EventObject;
 import java.util.HashSet;
 import java.util.Random;
 import java.util.Set;
-import java.util.StringJoiner;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
 
 import editor.collection.Inventory;
 import editor.database.card.Card;
 import editor.filter.Filter;
+import editor.filter.FilterCache;
 import editor.filter.FilterGroup;
 import editor.gui.SettingsDialog;
 
@@ -32,21 +30,63 @@ public class CategorySpec
 	 */
 	private static final String EXCEPTION_SEPARATOR = ":";
 	/**
-	 * Regex pattern for matching category strings and extracting their contents.  The first group
-	 * will be the category's name, the second group will be the UIDs of the cards in its whitelist,
-	 * the third group will the UIDs of the cards in its blacklist, the fourth group will be its color,
-	 * and the fifth group will be its filter's String representation.  The first four groups will
-	 * not include the group enclosing characters, but the fifth will.  The first through third groups
-	 * will be empty strings if they are empty, but the fourth will be null.  The first and fifth groups
-	 * should never be empty.
-	 * @see editor.gui.filter.original.FilterGroupPanel#setContents(String)
-	 */
-	private static final Pattern CATEGORY_PATTERN = Pattern.compile(
-			"^" + Filter.BEGIN_GROUP + "([^" + Filter.END_GROUP + "]+)" + Filter.END_GROUP		// Name
-			+ "\\s*" + Filter.BEGIN_GROUP + "([^" + Filter.END_GROUP + "]*)" + Filter.END_GROUP 	// Whitelist
-			+ "\\s*" + Filter.BEGIN_GROUP + "([^" + Filter.END_GROUP + "]*)" + Filter.END_GROUP	// Blacklist
-			+ "\\s*" + Filter.BEGIN_GROUP + "(#[0-9A-F-a-f]{6})?" + Filter.END_GROUP						// Color
-			+ "\\s*(.*)$");	
+	 * Split a category String into its contents in a single pass.  The first part
+	 * will be the category's name, the second will be the UIDs of the cards in its
+	 * whitelist, the third will be the UIDs of the cards in its blacklist, the fourth
+	 * will be its color, and the fifth will be its filter's String representation.
+	 * The first four parts will not include the group enclosing characters, but the
+	 * fifth will.  The second and third parts will be empty strings if they are empty,
+	 * but the fourth will be null.
+	 * 
+	 * @param pattern String to split
+	 * @return An array containing the five parts of the category String.
+	 * @throws IllegalArgumentException If the String is not a category String.
+	 */
+	private static String[] split(String pattern) throws IllegalArgumentException
+	{
+		String[] parts = new String[5];
+		int i = 0;
+		for (int part = 0; part < 4; part++)
+		{
+			while (i < pattern.length() && Character.isWhitespace(pattern.charAt(i)))
+				i++;
+			int end = i < pattern.length() && pattern.charAt(i) == Filter.BEGIN_GROUP ? pattern.indexOf(Filter.END_GROUP, i + 1) : -1;
+			if (end < 0)
+				throw new IllegalArgumentException("Illegal category string " + pattern);
+			parts[part] = pattern.substring(i + 1, end);
+			i = end + 1;
+		}
+		while (i < pattern.length() && Character.isWhitespace(pattern.charAt(i)))
+			i++;
+		parts[4] = pattern.substring(i);
+		if (parts[0].isEmpty() || parts[4].isEmpty())
+			throw new IllegalArgumentException("Illegal category string " + pattern);
+		if (parts[3].isEmpty())
+			parts[3] = null;
+		return parts;
+	}
+	
+	/**
+	 * Look up the cards in a whitelist or blacklist.
+	 * 
+	 * @param ids UIDs of the cards separated by {@link #EXCEPTION_SEPARATOR}
+	 * @param inventory Inventory containing the cards
+	 * @return The set of cards with the given UIDs.
+	 */
+	private static Set<Card> exceptions(String ids, Inventory inventory)
+	{
+		Set<Card> cards = new HashSet<Card>();
+		int start = 0;
+		while (start < ids.length())
+		{
+			int end = ids.indexOf(EXCEPTION_SEPARATOR, start);
+			if (end < 0)
+				end = ids.length();
+			cards.add(inventory[ids.substring(start, end)]);
+			start = end + EXCEPTION_SEPARATOR.length();
+		}
+		return cards;
+	}
 	
 	/**
 	 * Name of the category.
@@ -114,31 +154,20 @@ public class CategorySpec
 	 */
 	public CategorySpec(String pattern, Inventory inventory)
 	{
-		Matcher m = CATEGORY_PATTERN.matcher(pattern);
-		if (m.matches())
+		String[] parts = split(pattern);
+		name = parts[0];
+		whitelist = exceptions(parts[1], inventory);
+		blacklist = exceptions(parts[2], inventory);
+		if (parts[3] != null)
+			color = SettingsDialog.stringToColor(parts[3]);
+		else
 		{
-			name = m.group(1);
-			if (!m.group(2).isEmpty())
-				whitelist = Arrays.stream(m.group(2).split(EXCEPTION_SEPARATOR)).map(inventory::get).collect(Collectors.toSet());
-			else
-				whitelist = new HashSet<Card>();
-			if (!m.group(3).isEmpty())
-				blacklist = Arrays.stream(m.group(3).split(EXCEPTION_SEPARATOR)).map(inventory::get).collect(Collectors.toSet());
-			else
-				blacklist = new HashSet<Card>();
-			if (m.group(4) != null)
-				color = SettingsDialog.stringToColor(m.group(4));
-			else
-			{
-				Random rand = new Random();
-				color = Color.getHSBColor(rand.nextFloat(), rand.nextFloat(), (float)Math.sqrt(rand.nextFloat()));
-			}
-			filter = new FilterGroup();
-			filter.parse(m.group(5));
-			listeners = new HashSet<CategoryListener>();
+			Random rand = new Random();
+			color = Color.getHSBColor(rand.nextFloat(), rand.nextFloat(), (float)Math.sqrt(rand.nextFloat()));
 		}
-		else
-			throw new IllegalArgumentException("Illegal category string " + pattern);
+		filter = new FilterGroup();
+		filter.parse(parts[4]);
+		listeners = new HashSet<CategoryListener>();
 	}
 	
 	/**
@@ -149,25 +178,20 @@ public class CategorySpec
 	 */
 	public CategorySpec(String pattern)
 	{
-		Matcher m = CATEGORY_PATTERN.matcher(pattern);
-		if (m.matches())
+		String[] parts = split(pattern);
+		name = parts[0];
+		whitelist = new HashSet<Card>();
+		blacklist = new HashSet<Card>();
+		if (parts[3] != null)
+			color = SettingsDialog.stringToColor(parts[3]);
+		else
 		{
-			name = m.group(1);
-			whitelist = new HashSet<Card>();
-			blacklist = new HashSet<Card>();
-			if (m.group(4) != null)
-				color = SettingsDialog.stringToColor(m.group(4));
-			else
-			{
-				Random rand = new Random();
-				color = Color.getHSBColor(rand.nextFloat(), rand.nextFloat(), (float)Math.sqrt(rand.nextFloat()));
-			}
-			filter = new FilterGroup();
-			filter.parse(m.group(5));
-			listeners = new HashSet<CategoryListener>();
+			Random rand = new Random();
+			color = Color.getHSBColor(rand.nextFloat(), rand.nextFloat(), (float)Math.sqrt(rand.nextFloat()));
 		}
-		else
-			throw new IllegalArgumentException("Illegal category string " + pattern);
+		filter = new FilterGroup();
+		filter.parse(parts[4]);
+		listeners = new HashSet<CategoryListener>();
 	}
 	
 	/**
@@ -195,6 +219,16 @@ public class CategorySpec
 		return (filter.test(c) || whitelist.contains(c)) && !blacklist.contains(c);
 	}
 	
+	/**
+	 * @return A Predicate that is equivalent to {@link #includes(Card)}, but looks
+	 * up the results of this CategorySpec's filter in the shared {@link FilterCache}.
+	 */
+	public Predicate<Card> cachedIncludes()
+	{
+		Predicate<Card> passes = FilterCache.cached(filter);
+		return (c) -> (passes.test(c) || whitelist.contains(c)) && !blacklist.contains(c);
+	}
+	
 	/**
 	 * @return The name of the category this CategorySpec represents.
 	 */
@@ -222,12 +256,12 @@ public class CategorySpec
 	}
 	
 	/**
-	 * @return The set of Cards that should be included in the category
-	 * even if they don't pass through the filter.
+	 * @return A read-only view of the set of Cards that should be included
+	 * in the category even if they don't pass through the filter.
 	 */
 	public Set<Card> getWhitelist()
 	{
-		return new HashSet<Card>(whitelist);
+		return Collections.unmodifiableSet(whitelist);
 	}
 	
 	/**
@@ -260,12 +294,12 @@ public class CategorySpec
 	}
 	
 	/**
-	 * @return The set of Cards that should not be included in the category,
-	 * even if they pass through the filter.
+	 * @return A read-only view of the set of Cards that should not be included
+	 * in the category, even if they pass through the filter.
 	 */
 	public Set<Card> getBlacklist()
 	{
-		return new HashSet<Card>(blacklist);
+		return Collections.unmodifiableSet(blacklist);
 	}
 	
 	/**
@@ -374,8 +408,7 @@ public class CategorySpec
 		blacklist.clear();
 		blacklist.addAll(other.blacklist);
 		color = other.color;
-		filter = new FilterGroup();
-		filter.parse(other.filter.toString());
+		filter = other.filter.copy();
 		
 		if (e.nameChanged() || e.whitelistChanged() || e.blacklistChanged() || e.colorChanged() || e.filterChanged())
 		for (CategoryListener listener: listeners)
@@ -415,17 +448,34 @@ public class CategorySpec
 	@Override
 	public String toString()
 	{
-		StringJoiner white = new StringJoiner(EXCEPTION_SEPARATOR, String.valueOf(Filter.BEGIN_GROUP), String.valueOf(Filter.END_GROUP));
-		for (Card c: whitelist)
-			white.add(c.id());
-		StringJoiner black = new StringJoiner(EXCEPTION_SEPARATOR, String.valueOf(Filter.BEGIN_GROUP), String.valueOf(Filter.END_GROUP));
-		for (Card c: blacklist)
-			black.add(c.id());
-		return Filter.BEGIN_GROUP + name + Filter.END_GROUP
-				+ " " + white.toString()
-				+ " " + black.toString()
-				+ " " + Filter.BEGIN_GROUP + SettingsDialog.colorToString(color, 3) + Filter.END_GROUP
-				+ " " + filter.toString();
+		StringBuilder str = new StringBuilder();
+		str.append(Filter.BEGIN_GROUP).append(name).append(Filter.END_GROUP).append(' ');
+		writeExceptions(str, whitelist).append(' ');
+		writeExceptions(str, blacklist).append(' ');
+		str.append(Filter.BEGIN_GROUP).append(SettingsDialog.colorToString(color, 3)).append(Filter.END_GROUP).append(' ');
+		return filter.write(str).toString();
+	}
+	
+	/**
+	 * Append the UIDs of the cards in a whitelist or blacklist to a StringBuilder,
+	 * surrounded by beginning and ending markers.
+	 * 
+	 * @param str StringBuilder to append to
+	 * @param cards Cards to write
+	 * @return The StringBuilder.
+	 */
+	private static StringBuilder writeExceptions(StringBuilder str, Set<Card> cards)
+	{
+		str.append(Filter.BEGIN_GROUP);
+		boolean first = true;
+		for (Card c: cards)
+		{
+			if (!first)
+				str.append(EXCEPTION_SEPARATOR);
+			str.append(c.id());
+			first = false;
+		}
+		return str.append(Filter.END_GROUP);
 	}
 	
 	/**
@@ -4,14 +4,12 @@ import java.awt.datatransfer.DataFlavor;
 import java.awt.datatransfer.Transferable;
 import java.awt.datatransfer.UnsupportedFlavorException;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.EventObject;
 import java.util.HashMap;
@@ -24,13 +22,17 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Spliterator;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import editor.collection.CardList;
 import editor.collection.category.CategoryListener;
 import editor.collection.category.CategorySpec;
 import editor.database.card.Card;
+import editor.filter.FilterCache;
+import editor.util.PersistentMap;
 
 /**
  * This class represents a deck which can have cards added and removed (in quantity) and
@@ -56,9 +58,29 @@ public class Deck implements CardList
 		 */
 		private CategorySpec spec;
 		/**
-		 * List representing the filtered view of the master list.
+		 * Set of Cards in the master list that belong to this Category.
 		 */
-		private List<Card> filtrate;
+		private Set<Card> filtrate;
+		/**
+		 * Cards in this Category in the order they appear in the master list, or
+		 * <code>null</code> if it needs to be rebuilt.
+		 * @see #ordered()
+		 */
+		private List<Card> order;
+		/**
+		 * Total number of copies of the Cards in this Category, which is kept up to
+		 * date as Cards are added, removed, included, and excluded.
+		 */
+		private int total;
+		/**
+		 * Predicate testing Cards against this Category's specification using the shared
+		 * {@link FilterCache}, or <code>null</code> if it needs to be looked up again.
+		 */
+		private Predicate<Card> includes;
+		/**
+		 * Generation of the shared cache {@link #includes} was looked up in.
+		 */
+		private int generation;
 		/**
 		 * Listener for changes in this category's CategorySpec.
 		 */
@@ -69,7 +91,8 @@ public class Deck implements CardList
 		public int rank;
 		
 		/**
-		 * Create a new Category.
+		 * Create a new Category with no Cards in it.  Call {@link #update()} to
+		 * fill it from the master list.
 		 * 
 		 * @param s Specifications for the new Category
 		 */
@@ -77,7 +100,11 @@ public class Deck implements CardList
 		{
 			spec = s;
 			rank = categories.size();
-			update();
+			filtrate = new HashSet<Card>();
+			order = new ArrayList<Card>();
+			total = 0;
+			includes = null;
+			generation = 0;
 		}
 		
 		/**
@@ -138,6 +165,53 @@ public class Deck implements CardList
 			throw new UnsupportedOperationException();
 		}
 		
+		/**
+		 * Add a new Entry from the end of the master list to this Category.  Since
+		 * it is at the end of the master list, the ordered view doesn't have to be
+		 * rebuilt.
+		 * 
+		 * @param e Entry to add
+		 */
+		private void admit(DeckEntry e)
+		{
+			if (filtrate.add(e.card))
+			{
+				total += e.count;
+				if (order != null)
+					order.add(e.card);
+			}
+		}
+		
+		/**
+		 * Remove an Entry from this Category's view of the master list.
+		 * 
+		 * @param e Entry to remove
+		 */
+		private void evict(DeckEntry e)
+		{
+			if (filtrate.remove(e.card))
+			{
+				total -= e.count;
+				order = null;
+			}
+		}
+		
+		/**
+		 * @return The list of Cards in this Category in the order they appear
+		 * in the master list, rebuilding it if it is out of date.
+		 */
+		private List<Card> ordered()
+		{
+			if (order == null)
+			{
+				order = new ArrayList<Card>(filtrate.size());
+				for (DeckEntry e: masterList)
+					if (filtrate.contains(e.card))
+						order.add(e.card);
+			}
+			return order;
+		}
+		
 		/**
 		 * @param o Object to look for
 		 * @return <code>true</code> if the given Object is in this Category, and
@@ -171,7 +245,7 @@ public class Deck implements CardList
 		@Override
 		public Card get(int index)
 		{
-			return filtrate[index];
+			return ordered()[index];
 		}
 		
 		@Override
@@ -192,11 +266,55 @@ public class Deck implements CardList
 		/**
 		 * @param c Card to test
 		 * @return <code>true</code> if the given Card can belong to this Category and
-		 * <code>false</code> otherwise.
+		 * <code>false</code> otherwise.  The result is looked up in the shared
+		 * {@link FilterCache}, so other Decks with the same category can reuse it.
 		 */
 		public boolean includes(Card c)
 		{
-			return spec.includes(c);
+			if (includes == null || generation != FilterCache.generation())
+			{
+				generation = FilterCache.generation();
+				includes = spec.cachedIncludes();
+			}
+			return includes.test(c);
+		}
+		
+		/**
+		 * Test some Cards in the Deck against this Category's specification again,
+		 * and admit or evict them depending on the result.
+		 * 
+		 * @param cards Cards to test
+		 * @return <code>true</code> if any of the Cards joined or left this Category,
+		 * and <code>false</code> otherwise.
+		 */
+		private boolean retest(Collection<? extends Card> cards)
+		{
+			boolean changed = false;
+			for (Card c: cards)
+			{
+				DeckEntry entry = getEntry(c);
+				if (entry != null)
+				{
+					if (includes(c))
+					{
+						if (filtrate.add(c))
+						{
+							order = null;
+							total += entry.count;
+							entry.categories.add(this);
+							changed = true;
+						}
+					}
+					else if (filtrate.remove(c))
+					{
+						order = null;
+						total -= entry.count;
+						entry.categories.remove(this);
+						changed = true;
+					}
+				}
+			}
+			return changed;
 		}
 		
 		/**
@@ -207,7 +325,7 @@ public class Deck implements CardList
 		@Override
 		public int indexOf(Object o)
 		{
-			return filtrate.indexOf(o);
+			return contains(o) ? ordered().indexOf(o) : -1;
 		}
 		
 		/**
@@ -226,7 +344,7 @@ public class Deck implements CardList
 		@Override
 		public Iterator<Card> iterator()
 		{
-			return filtrate.iterator();
+			return Collections.unmodifiableList(ordered()).iterator();
 		}
 		
 		@Override
@@ -351,7 +469,7 @@ public class Deck implements CardList
 		@Override
 		public Stream<Card> stream()
 		{
-			return filtrate.stream();
+			return ordered().stream();
 		}
 
 		/**
@@ -360,7 +478,7 @@ public class Deck implements CardList
 		@Override
 		public Card[] toArray()
 		{
-			return filtrate.toArray(new Card[filtrate.size()]);
+			return ordered().toArray(new Card[filtrate.size()]);
 		}
 
 		/**
@@ -380,22 +498,78 @@ public class Deck implements CardList
 		@Override
 		public int total()
 		{
-			return filtrate.stream().map(Deck.this::getEntry).mapToInt((e) -> e == null ? 0 : e.count).sum();
+			return total;
 		}
 
 		/**
 		 * Update this category so its filtrate reflects the new filter,
-		 * whitelist, and blacklist.
+		 * whitelist, and blacklist.  Filter results are looked up in the
+		 * shared cache before cards are tested.
 		 */
 		public void update()
 		{
-			filtrate = masterList.stream().map((e) -> e.card).filter(spec::includes).collect(Collectors.toList());
+			includes = null;
+			filtrate = new HashSet<Card>();
+			order = new ArrayList<Card>();
+			total = 0;
 			for (DeckEntry e: masterList)
-				if (spec.includes(e.card))
+			{
+				if (includes(e.card))
+				{
+					filtrate.add(e.card);
+					order.add(e.card);
+					total += e.count;
 					e.categories.add(this);
+				}
 				else
 					e.categories.remove(this);
+			}
 		}
+		
+		/**
+		 * Update this category's filtrate to reflect a change to its specification.
+		 * Only the Cards that could have changed membership are tested: those added
+		 * to or removed from the whitelist or blacklist, plus the current members if
+		 * the new filter refines the old one.  If the filter changed in any other way,
+		 * the entire master list is tested again.
+		 * 
+		 * @param e Event describing the change to the specification
+		 * @see editor.filter.Filter#refines(editor.filter.Filter)
+		 */
+		public void update(CategorySpec.Event e)
+		{
+			includes = null;
+			if (e.filterChanged() && !spec.getFilter().refines(e.oldFilter()))
+				update();
+			else if (e.filterChanged() || e.whitelistChanged() || e.blacklistChanged())
+			{
+				Set<Card> candidates = new HashSet<Card>();
+				if (e.filterChanged())
+					candidates.addAll(filtrate);
+				if (e.whitelistChanged())
+					symmetricDifference(e.oldWhitelist(), spec.getWhitelist(), candidates);
+				if (e.blacklistChanged())
+					symmetricDifference(e.oldBlacklist(), spec.getBlacklist(), candidates);
+				retest(candidates);
+			}
+		}
+	}
+	
+	/**
+	 * Add the elements that are in exactly one of two sets to a collection.
+	 * 
+	 * @param a First set
+	 * @param b Second set
+	 * @param difference Collection to add the elements to
+	 */
+	private static <E> void symmetricDifference(Set<E> a, Set<E> b, Collection<E> difference)
+	{
+		for (E e: a)
+			if (!b.contains(e))
+				difference.add(e);
+		for (E e: b)
+			if (!a.contains(e))
+				difference.add(e);
 	}
 	
 	/**
@@ -517,6 +691,16 @@ public class Deck implements CardList
 		 * contains which ones and how many copies.
 		 */
 		private Map<Card, Integer> cardsChanged;
+		/**
+		 * Cards that were added and how many copies, computed from the changes to the
+		 * cards when it is first needed.
+		 */
+		private Map<Card, Integer> cardsAdded;
+		/**
+		 * Cards that were removed and how many copies, computed from the changes to the
+		 * cards when it is first needed.
+		 */
+		private Map<Card, Integer> cardsRemoved;
 		/**
 		 * If a category's name was changed, its old name.
 		 */
@@ -527,9 +711,9 @@ public class Deck implements CardList
 		 */
 		private CategorySpec.Event categoryChanges;
 		/**
-		 * If a category was added to the deck, its name.
+		 * If categories were added to the deck, their names in order of rank.
 		 */
-		private String addedCategory;
+		private List<String> addedCategories;
 		/**
 		 * Set of names of categories that have been removed, if any.
 		 */
@@ -543,21 +727,36 @@ public class Deck implements CardList
 		{
 			super(Deck.this);
 			cardsChanged = null;
+			cardsAdded = null;
+			cardsRemoved = null;
 			changedName = null;
 			categoryChanges = null;
-			addedCategory = null;
+			addedCategories = null;
 			removedCategories = null;
 			rankChanges = null;
 		}
 		
 		/**
-		 * @return The name of the category that was added.
+		 * @return The name of the category that was added, or of the last one if
+		 * several were.
 		 * @throws IllegalStateException If no category was added.
 		 */
 		public String addedName()
 		{
 			if (categoryAdded())
-				return addedCategory;
+				return addedCategories[addedCategories.size() - 1];
+			else
+				throw new IllegalStateException("No category has been added to the deck");
+		}
+		
+		/**
+		 * @return The names of the categories that were added, in order of rank.
+		 * @throws IllegalStateException If no category was added.
+		 */
+		public List<String> addedNames()
+		{
+			if (categoryAdded())
+				return Collections.unmodifiableList(addedCategories);
 			else
 				throw new IllegalStateException("No category has been added to the deck");
 		}
@@ -572,11 +771,15 @@ public class Deck implements CardList
 		{
 			if (cardsChanged())
 			{
-				Map<Card, Integer> cards = new HashMap<Card, Integer>(cardsChanged);
-				for (Card c: cardsChanged.keySet())
-					if (cardsChanged[c].intValue() < 1)
-						cards.remove(c);
-				return cards;
+				if (cardsAdded == null)
+				{
+					Map<Card, Integer> cards = new HashMap<Card, Integer>();
+					for (Map.Entry<Card, Integer> change: cardsChanged.entrySet())
+						if (change.getValue().intValue() > 0)
+							cards[change.getKey()] = change.getValue();
+					cardsAdded = Collections.unmodifiableMap(cards);
+				}
+				return cardsAdded;
 			}
 			else
 				throw new IllegalStateException("Deck cards were not changed");
@@ -591,6 +794,38 @@ public class Deck implements CardList
 			return cardsChanged != null;
 		}
 		
+		/**
+		 * @return <code>true</code> if Cards were added to or removed from the Deck
+		 * and nothing else changed during the event, and <code>false</code> otherwise.
+		 */
+		public boolean cardsOnly()
+		{
+			return cardsChanged() && !categoryAdded() && !categoriesRemoved() && !categoryChanged() && !ranksChanged();
+		}
+		
+		/**
+		 * Combine this Event with one that happened after it.  Both events must only
+		 * have changed Cards.  Changes to the same Card are added together, and Cards
+		 * whose changes cancel out are left out.
+		 * 
+		 * @param later Event that happened after this one
+		 * @return A new Event with the changes from both events.
+		 * @throws IllegalArgumentException If either event changed something other than
+		 * Cards or the events came from different Decks
+		 */
+		Event merge(Event later)
+		{
+			if (!cardsOnly() || !later.cardsOnly())
+				throw new IllegalArgumentException("only changes to cards can be merged");
+			if (later.getSource() != Deck.this)
+				throw new IllegalArgumentException("can't merge changes to different decks");
+			Map<Card, Integer> change = new HashMap<Card, Integer>(cardsChanged);
+			for (Map.Entry<Card, Integer> c: later.cardsChanged.entrySet())
+				if (change.merge(c.getKey(), c.getValue(), Integer::sum).intValue() == 0)
+					change.remove(c.getKey());
+			return new Event().cardsChanged(change);
+		}
+		
 		/**
 		 * Indicate that cards and/or counts of cards in the deck changed.
 		 * 
@@ -613,13 +848,15 @@ public class Deck implements CardList
 		{
 			if (cardsChanged())
 			{
-				Map<Card, Integer> cards = new HashMap<Card, Integer>(cardsChanged);
-				for (Card c: cardsChanged.keySet())
-					if (cardsChanged[c].intValue() > -1)
-						cards.remove(c);
-					else
-						cardsChanged.compute(c, (k, v) -> -v);
-				return cards;
+				if (cardsRemoved == null)
+				{
+					Map<Card, Integer> cards = new HashMap<Card, Integer>();
+					for (Map.Entry<Card, Integer> change: cardsChanged.entrySet())
+						if (change.getValue().intValue() < 0)
+							cards[change.getKey()] = -change.getValue();
+					cardsRemoved = Collections.unmodifiableMap(cards);
+				}
+				return cardsRemoved;
 			}
 			else
 				throw new IllegalStateException("Deck cards were not changed");
@@ -652,7 +889,7 @@ public class Deck implements CardList
 		 */
 		public boolean categoryAdded()
 		{
-			return addedCategory != null;
+			return addedCategories != null;
 		}
 		
 		/**
@@ -663,7 +900,18 @@ public class Deck implements CardList
 		 */
 		private Event categoryAdded(Category added)
 		{
-			addedCategory = added.spec.getName();
+			return categoriesAdded(Arrays.asList(added));
+		}
+		
+		/**
+		 * Indicate that categories were added to the deck.
+		 * 
+		 * @param added Categories that were added, in order of rank
+		 * @return The Event representing the change.
+		 */
+		private Event categoriesAdded(Collection<Category> added)
+		{
+			addedCategories = added.stream().map((c) -> c.spec.getName()).collect(Collectors.toList());
 			return this;
 		}
 		
@@ -867,6 +1115,180 @@ public class Deck implements CardList
 		}
 	}
 	
+	/**
+	 * This class represents the numbers of copies of each Card in a Deck at some point
+	 * in time, along with the total number of cards in each of its categories.
+	 * Snapshots share structure with each other and with the Deck they came from, so
+	 * taking one doesn't depend on the number of cards in the Deck, and comparing two
+	 * snapshots only has to look at what changed between them.  Snapshots don't include
+	 * the categories' specifications.
+	 * <p>
+	 * A Deck should only be changed on one thread (the event dispatch thread in the GUI),
+	 * but Snapshots are immutable, so one taken on that thread can be handed to any
+	 * number of worker threads while the Deck continues to change.  Each Snapshot records
+	 * the {@link Deck#version() version} of the Deck it was taken from, which workers can
+	 * use to tell whether their results are out of date.
+	 * 
+	 * @author Alec Roelke
+	 */
+	public static class Snapshot
+	{
+		/**
+		 * Version of the Deck this Snapshot was taken from.
+		 */
+		private final long version;
+		/**
+		 * Number of copies of each Card at the time of this Snapshot.
+		 */
+		private final PersistentMap<Card, Integer> counts;
+		/**
+		 * Total number of Cards at the time of this Snapshot.
+		 */
+		private final int total;
+		/**
+		 * Total number of land Cards at the time of this Snapshot.
+		 */
+		private final int land;
+		/**
+		 * Total number of Cards in each category at the time of this Snapshot, in order
+		 * of rank.
+		 */
+		private final Map<String, Integer> categoryTotals;
+		
+		/**
+		 * Create a new Snapshot.
+		 * 
+		 * @param v Version of the Deck
+		 * @param c Number of copies of each Card
+		 * @param t Total number of Cards
+		 * @param l Total number of land Cards
+		 * @param ct Total number of Cards in each category, in order of rank
+		 */
+		private Snapshot(long v, PersistentMap<Card, Integer> c, int t, int l, Map<String, Integer> ct)
+		{
+			version = v;
+			counts = c;
+			total = t;
+			land = l;
+			categoryTotals = Collections.unmodifiableMap(ct);
+		}
+		
+		/**
+		 * @return The names of the Deck's categories at the time of this Snapshot, in
+		 * order of rank.
+		 */
+		public Set<String> categories()
+		{
+			return categoryTotals.keySet();
+		}
+		
+		/**
+		 * Find the changes needed to turn this Snapshot into another one.
+		 * 
+		 * @param other Snapshot to compare with
+		 * @return A map of Cards onto the number of copies that would have to be added
+		 * (positive) or removed (negative) to go from this Snapshot to the other one.
+		 */
+		public Map<Card, Integer> changes(Snapshot other)
+		{
+			Map<Card, Integer> changes = new HashMap<Card, Integer>();
+			difference(other, (c, before, after) -> changes[c] = (after == null ? 0 : after) - (before == null ? 0 : before));
+			return changes;
+		}
+		
+		/**
+		 * Perform an action on each Card whose number of copies differs between this
+		 * Snapshot and another one.  Only the parts of the snapshots that don't share
+		 * structure are compared.
+		 * 
+		 * @param other Snapshot to compare with
+		 * @param action Action to perform on each Card, whose "before" value is its
+		 * count in this Snapshot and whose "after" value is its count in the other one
+		 * (<code>null</code> if the Card isn't there)
+		 */
+		public void difference(Snapshot other, PersistentMap.DifferenceConsumer<? super Card, ? super Integer> action)
+		{
+			counts.difference(other.counts, action);
+		}
+		
+		/**
+		 * @param c Card to look for
+		 * @return The number of copies of the Card at the time of this Snapshot.
+		 */
+		public int count(Card c)
+		{
+			Integer n = counts.get(c);
+			return n == null ? 0 : n;
+		}
+		
+		/**
+		 * @return A map of each Card onto its number of copies at the time of this
+		 * Snapshot.
+		 */
+		public Map<Card, Integer> counts()
+		{
+			return counts.toMap();
+		}
+		
+		/**
+		 * @return The number of unique Cards at the time of this Snapshot.
+		 */
+		public int size()
+		{
+			return counts.size();
+		}
+		
+		/**
+		 * @return The total number of land Cards, accounting for multiples, at the time
+		 * of this Snapshot.
+		 */
+		public int land()
+		{
+			return land;
+		}
+		
+		/**
+		 * @return The total number of nonland Cards, accounting for multiples, at the
+		 * time of this Snapshot.
+		 */
+		public int nonland()
+		{
+			return total - land;
+		}
+		
+		/**
+		 * @return The total number of Cards, accounting for multiples, at the time of
+		 * this Snapshot.
+		 */
+		public int total()
+		{
+			return total;
+		}
+		
+		/**
+		 * @param name Name of the category to look up
+		 * @return The total number of Cards in the category, accounting for multiples,
+		 * at the time of this Snapshot.
+		 * @throws IllegalArgumentException If the Deck didn't have the category
+		 */
+		public int total(String name) throws IllegalArgumentException
+		{
+			Integer n = categoryTotals[name];
+			if (n == null)
+				throw new IllegalArgumentException("Deck has no category named " + name);
+			return n;
+		}
+		
+		/**
+		 * @return The version of the Deck this Snapshot was taken from.
+		 * @see Deck#version()
+		 */
+		public long version()
+		{
+			return version;
+		}
+	}
+	
 	/**
 	 * Data flavor representing entries in a deck.  Transfer data will appear as a
 	 * map of cards onto an integer representing the number of copies to transfer.
@@ -876,10 +1298,26 @@ public class Deck implements CardList
 	 * Formatter for dates, usually for formatting the add date of a card.
 	 */
 	public static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("MMMM d, yyyy");
+	/**
+	 * Minimum number of Cards a bulk load has to test against categories for the tests
+	 * to be done in parallel.
+	 * @see #load(Map, Map, Collection)
+	 */
+	private static final int PARALLEL_THRESHOLD = 256;
 	/**
 	 * List of cards in this Deck.
 	 */
 	private List<DeckEntry> masterList;
+	/**
+	 * Map of Cards onto their entries in {@link #masterList}, for looking up entries
+	 * without searching the list.
+	 */
+	private Map<Card, DeckEntry> entries;
+	/**
+	 * Number of copies of each Card in this Deck, kept in a persistent map so that
+	 * {@link #snapshot()} doesn't have to copy anything.
+	 */
+	private PersistentMap<Card, Integer> counts;
 	/**
 	 * Categories in this Deck.
 	 */
@@ -898,6 +1336,16 @@ public class Deck implements CardList
 	 * List of listeners for changes in this Deck.
 	 */
 	private Collection<DeckListener> listeners;
+	/**
+	 * Copy of the listeners that events are sent to, so that listeners can add or
+	 * remove themselves in response to an event.  It is <code>null</code> if the
+	 * listeners have changed since the last event.
+	 */
+	private DeckListener[] dispatch;
+	/**
+	 * Number of events this Deck has fired, which identifies its current state.
+	 */
+	private long version;
 	
 	/**
 	 * Create a new, empty Deck with no categories.
@@ -905,10 +1353,14 @@ public class Deck implements CardList
 	public Deck()
 	{
 		masterList = new ArrayList<DeckEntry>();
+		entries = new HashMap<Card, DeckEntry>();
+		counts = PersistentMap.empty();
 		categories = new LinkedHashMap<String, Category>();
 		total = 0;
 		land = 0;
 		listeners = new HashSet<DeckListener>();
+		dispatch = null;
+		version = 0;
 	}
 	
 	/**
@@ -970,35 +1422,91 @@ public class Deck implements CardList
 			return false;
 		else
 		{
-			DeckEntry e = getEntry(c);
-			if (e == null)
-			{
-				masterList.add(e = new DeckEntry(c, n, d));
-				for (Category category: categories.values())
-				{
-					if (category.includes(c))
-					{
-						category.filtrate.add(c);
-						e.categories.add(category);
-					}
-				}
-			}
-			else
-				e.add(n);
-			total += n;
-			if (c.typeContains("land"))
-				land += n;
+			addCopies(c, n, d);
 			
 			Map<Card, Integer> added = new HashMap<Card, Integer>();
 			added[c] = n;
 			Event event = new Event().cardsChanged(added);
-			for (DeckListener listener: listeners)
-				listener.deckChanged(event);
+			fire(event);
 			
 			return true;
 		}
 	}
 	
+	/**
+	 * Add copies of a Card to this Deck and its categories without alerting
+	 * any listeners.
+	 * 
+	 * @param c Card to add
+	 * @param n Number of copies to add, which should be positive
+	 * @param d Date the card was originally added, if it isn't already in the Deck
+	 */
+	private void addCopies(Card c, int n, Date d)
+	{
+		DeckEntry e = getEntry(c);
+		if (e == null)
+		{
+			masterList.add(e = new DeckEntry(c, n, d));
+			entries[c] = e;
+			for (Category category: categories.values())
+			{
+				if (category.includes(c))
+				{
+					category.admit(e);
+					e.categories.add(category);
+				}
+			}
+		}
+		else
+		{
+			e.add(n);
+			for (Category category: e.categories)
+				category.total += n;
+		}
+		counts = counts.plus(c, e.count);
+		total += n;
+		if (c.typeContains("land"))
+			land += n;
+	}
+	
+	/**
+	 * Add and remove copies of several Cards at once.  Positive amounts add copies
+	 * and negative amounts remove them.  Listeners are alerted with a single event
+	 * containing all of the changes once they have all been made, rather than once
+	 * for each Card.
+	 * 
+	 * @param changes Map of Cards onto the number of copies to add or remove
+	 * @return A map of Cards onto the number of copies that were actually added or
+	 * removed, which omits Cards that didn't change.
+	 */
+	public Map<Card, Integer> applyAll(Map<Card, Integer> changes)
+	{
+		Date date = new Date();
+		Map<Card, Integer> changed = new HashMap<Card, Integer>();
+		for (Map.Entry<Card, Integer> change: changes.entrySet())
+		{
+			int n = change.getValue();
+			if (n > 0)
+			{
+				addCopies(change.getKey(), n, date);
+				changed[change.getKey()] = n;
+			}
+			else if (n < 0)
+			{
+				int removed = removeCopies(change.getKey(), -n);
+				if (removed > 0)
+					changed[change.getKey()] = -removed;
+			}
+		}
+		
+		if (!changed.isEmpty())
+		{
+			Event event = new Event().cardsChanged(new HashMap<Card, Integer>(changed));
+			fire(event);
+		}
+		return changed;
+	}
+	
 	/**
 	 * Add each of the given collection of Cards that aren't already in the Deck to the Deck.
 	 * 
@@ -1051,24 +1559,10 @@ public class Deck implements CardList
 			Category c = new Category(spec);
 			categories[spec.getName()] = c;
 			c.update();
-			
-			spec.addCategoryListener(c.listener = (e) -> {
-				if (e.nameChanged())
-				{
-					categories.remove(e.oldName());
-					categories[e.newName()] = c;
-				}
-				if (e.filterChanged() || e.whitelistChanged() || e.blacklistChanged())
-					c.update();
-				
-				Event event = new Event().categoryChanged(e.nameChanged() ? e.oldName() : e.getSource().getName(), e);
-				for (DeckListener listener: new HashSet<DeckListener>(listeners))
-					listener.deckChanged(event);
-			});
+			listen(c);
 
 			Event event = new Event().categoryAdded(c);
-			for (DeckListener listener: new HashSet<DeckListener>(listeners))
-				listener.deckChanged(event);
+			fire(event);
 			
 			return c;
 		}
@@ -1077,13 +1571,51 @@ public class Deck implements CardList
 	}
 	
 	/**
-	 * Add a new listener for listening to changes in this Deck.
+	 * Alert this Deck's listeners to a change and advance its version.
+	 * 
+	 * @param event Event describing the change
+	 */
+	private void fire(Event event)
+	{
+		version++;
+		if (dispatch == null)
+			dispatch = listeners.toArray(new DeckListener[listeners.size()]);
+		for (DeckListener listener: dispatch)
+			listener.deckChanged(event);
+	}
+	
+	/**
+	 * Listen for changes to a Category's specification, updating the Category and
+	 * alerting this Deck's listeners when it changes.
+	 * 
+	 * @param c Category to listen to
+	 */
+	private void listen(Category c)
+	{
+		c.spec.addCategoryListener(c.listener = (e) -> {
+			if (e.nameChanged())
+			{
+				categories.remove(e.oldName());
+				categories[e.newName()] = c;
+			}
+			c.update(e);
+			
+			Event event = new Event().categoryChanged(e.nameChanged() ? e.oldName() : e.getSource().getName(), e);
+			fire(event);
+		});
+	}
+	
+	/**
+	 * Add a new listener for listening to changes in this Deck.  Listeners are
+	 * alerted while the change is being made, so listeners that take a long time
+	 * should be wrapped in a {@link DeckDispatcher}.
 	 * 
 	 * @param listener Listener to add.
 	 */
 	public void addDeckListener(DeckListener listener)
 	{
-		listeners.add(listener);
+		if (listeners.add(listener))
+			dispatch = null;
 	}
 	
 	/**
@@ -1105,24 +1637,26 @@ public class Deck implements CardList
 		Collection<Category> categoriesRemoved = categories.values();
 		
 		masterList.clear();
+		entries.clear();
+		counts = PersistentMap.empty();
 		categories.clear();
 		total = 0;
 		land = 0;
 		
 		Event event = new Event().cardsChanged(removed).categoriesRemoved(categoriesRemoved);
-		for (DeckListener listener: new HashSet<DeckListener>(listeners))
-			listener.deckChanged(event);
+		fire(event);
 	}
 	
 	/**
 	 * @param o Object to look for
 	 * @return <code>true</code> if this Deck contains one or more copies
-	 * of the given Object, and <code>false</code> otherwise.
+	 * of the given Object, and <code>false</code> otherwise.  This takes
+	 * constant time, so it is safe to call while rendering.
 	 */
 	@Override
 	public boolean contains(Object o)
 	{
-		return o instanceof Card && getEntry((Card)o) != null;
+		return entries.containsKey(o);
 	}
 	
 	/**
@@ -1264,10 +1798,7 @@ public class Deck implements CardList
 	 */
 	private DeckEntry getEntry(Card c)
 	{
-		for (DeckEntry e: masterList)
-			if (e.card.equals(c))
-				return e;
-		return null;
+		return entries[c];
 	}
 	
 	/**
@@ -1384,45 +1915,70 @@ public class Deck implements CardList
 	@Override
 	public int remove(Card c, int n)
 	{
-		if (n < 1)
+		n = removeCopies(c, n);
+		if (n > 0)
+		{
+			Map<Card, Integer> removed = new HashMap<Card, Integer>();
+			removed[c] = -n;
+			Event event = new Event().cardsChanged(removed);
+			fire(event);
+		}
+		return n;
+	}
+	
+	/**
+	 * Remove copies of a Card from this Deck and its categories without alerting
+	 * any listeners.
+	 * 
+	 * @param c Card to remove
+	 * @param n Number of copies to remove
+	 * @return The number of copies of the Card that were actually removed.
+	 */
+	private int removeCopies(Card c, int n)
+	{
+		DeckEntry e = getEntry(c);
+		if (n < 1 || e == null)
 			return 0;
 		else
 		{
-			DeckEntry e = getEntry(c);
-			if (e == null)
-				return 0;
+			if (n > e.count)
+				n = e.count;
+			e.remove(n);
+			for (Category category: e.categories)
+				category.total -= n;
+			if (e.count == 0)
+				removeEntry(e);
 			else
-			{
-				if (n > e.count)
-					n = e.count;
-				e.remove(n);
-				if (e.count == 0)
-				{
-					for (Category category: categories.values())
-					{
-						category.filtrate.remove(c);
-						if (category.spec.getWhitelist().contains(c))
-							category.spec.exclude(c);
-						if (category.spec.getBlacklist().contains(c))
-							category.spec.include(c);
-					}
-					masterList.remove(e);
-				}
-				total -= n;
-				if (c.typeContains("land"))
-					land -= n;
-				
-				Map<Card, Integer> removed = new HashMap<Card, Integer>();
-				removed[c] = -n;
-				Event event = new Event().cardsChanged(removed);
-				for (DeckListener listener: listeners)
-					listener.deckChanged(event);
-				
-				return n;
-			}
+				counts = counts.plus(c, e.count);
+			total -= n;
+			if (c.typeContains("land"))
+				land -= n;
+			return n;
 		}
 	}
 
+	/**
+	 * Remove an Entry that has no more copies from this Deck and its categories.
+	 * The Entry's Card is also removed from any category whitelists or blacklists
+	 * it is in.
+	 * 
+	 * @param e Entry to remove
+	 */
+	private void removeEntry(DeckEntry e)
+	{
+		masterList.remove(e);
+		entries.remove(e.card);
+		counts = counts.minus(e.card);
+		for (Category category: categories.values())
+		{
+			category.evict(e);
+			if (category.spec.getWhitelist().contains(e.card))
+				category.spec.exclude(e.card);
+			if (category.spec.getBlacklist().contains(e.card))
+				category.spec.include(e.card);
+		}
+	}
+	
 	/**
 	 * @param o Object to remove
 	 * @return <code>true</code> if the object is a Card and if one or more copies were
@@ -1484,8 +2040,7 @@ public class Deck implements CardList
 			c.spec.removeCategoryListener(c.listener);
 			
 			Event event = new Event().categoryRemoved(c).ranksChanged(oldRanks);
-			for (DeckListener listener: new HashSet<DeckListener>(listeners))
-				listener.deckChanged(event);
+			fire(event);
 			
 			return true;
 		}
@@ -1493,6 +2048,135 @@ public class Deck implements CardList
 			return false;
 	}
 
+	/**
+	 * Change the number of copies of each Card in this Deck to match a Snapshot.  Only
+	 * the Cards that differ are changed, and listeners are alerted with a single event.
+	 * Categories are not affected except by the changes to their Cards.
+	 * 
+	 * @param snapshot Snapshot to restore
+	 * @return A map of Cards onto the number of copies that were added or removed to
+	 * restore the Snapshot.
+	 */
+	public Map<Card, Integer> restore(Snapshot snapshot)
+	{
+		return applyAll(snapshot().changes(snapshot));
+	}
+	
+	/**
+	 * Test some Cards against every category again, such as after their tags have
+	 * changed and the shared {@link FilterCache} has been invalidated for them.  Only
+	 * the given Cards are tested, and Cards that aren't in this Deck are ignored.
+	 * Membership isn't part of the contents of the Deck, so no event is fired.
+	 * 
+	 * @param cards Cards to test
+	 * @return <code>true</code> if any Card joined or left a category, and
+	 * <code>false</code> otherwise.
+	 */
+	public boolean retest(Collection<? extends Card> cards)
+	{
+		boolean changed = false;
+		for (Category category: categories.values())
+			changed |= category.retest(cards);
+		if (changed)
+			version++;
+		return changed;
+	}
+	
+	/**
+	 * Add many Cards and categories to this Deck at once, such as when loading it from
+	 * a file.  New Cards are added to the master list in one pass, then every Card that
+	 * needs to be tested against a category is tested in a single pass over the master
+	 * list, which is done in parallel for large Decks.  Existing categories only test
+	 * the new Cards, and new categories test all of them.  Listeners are alerted with a
+	 * single event once everything has been added.  Categories whose names are already
+	 * in this Deck are ignored.
+	 * 
+	 * @param cards Map of Cards onto the number of copies of each to add, in the order
+	 * they should be added
+	 * @param dates Map of Cards onto the dates they were originally added; Cards that
+	 * aren't in it are given the current date
+	 * @param specs Specifications of categories to add, in order of rank
+	 */
+	public void load(Map<Card, Integer> cards, Map<Card, Date> dates, Collection<CategorySpec> specs)
+	{
+		Date now = new Date();
+		Map<Card, Integer> changed = new HashMap<Card, Integer>();
+		int start = masterList.size();
+		for (Map.Entry<Card, Integer> card: cards.entrySet())
+		{
+			Card c = card.getKey();
+			int n = card.getValue();
+			if (n < 1)
+				continue;
+			Date d = dates.containsKey(c) ? dates[c] : now;
+			if (contains(c))
+				addCopies(c, n, d);
+			else
+			{
+				DeckEntry e = new DeckEntry(c, n, d);
+				masterList.add(e);
+				entries[c] = e;
+				counts = counts.plus(c, n);
+				total += n;
+				if (c.typeContains("land"))
+					land += n;
+			}
+			changed[c] = n;
+		}
+		
+		List<Category> existing = new ArrayList<Category>(categories.values());
+		List<Category> added = new ArrayList<Category>();
+		for (CategorySpec spec: specs)
+		{
+			if (!categories.containsKey(spec.getName()))
+			{
+				Category c = new Category(spec);
+				categories[spec.getName()] = c;
+				added.add(c);
+			}
+		}
+		
+		List<Category> tested = new ArrayList<Category>(existing);
+		tested.addAll(added);
+		List<Predicate<Card>> includes = tested.stream().map((c) -> c.spec.cachedIncludes()).collect(Collectors.toList());
+		int first = added.isEmpty() ? start : 0;
+		boolean[][] membership = new boolean[masterList.size() - first][];
+		IntStream indices = IntStream.range(first, masterList.size());
+		if (membership.length >= PARALLEL_THRESHOLD)
+			indices = indices.parallel();
+		indices.forEach((i) -> {
+			Card c = masterList[i].card;
+			boolean[] member = new boolean[tested.size()];
+			for (int j = i < start ? existing.size() : 0; j < member.length; j++)
+				member[j] = includes[j].test(c);
+			membership[i - first] = member;
+		});
+		for (int i = first; i < masterList.size(); i++)
+		{
+			DeckEntry e = masterList[i];
+			for (int j = 0; j < tested.size(); j++)
+			{
+				if (membership[i - first][j])
+				{
+					tested[j].admit(e);
+					e.categories.add(tested[j]);
+				}
+			}
+		}
+		for (Category c: added)
+			listen(c);
+		
+		if (!changed.isEmpty() || !added.isEmpty())
+		{
+			Event event = new Event();
+			if (!changed.isEmpty())
+				event.cardsChanged(changed);
+			if (!added.isEmpty())
+				event.categoriesAdded(added);
+			fire(event);
+		}
+	}
+	
 	/**
 	 * Remove a listener so it no longer receives alerts to changes in this
 	 * Deck.
@@ -1503,38 +2187,25 @@ public class Deck implements CardList
 	 */
 	public boolean removeDeckListener(DeckListener listener)
 	{
-		return listeners.remove(listener);
+		if (listeners.remove(listener))
+		{
+			dispatch = null;
+			return true;
+		}
+		else
+			return false;
 	}
 
 	/**
-	 * Write this Deck to a file.  The format will appear like this:
-	 * [Number of unique cards]
-	 * [Card 1 UID]\t[count]
-	 * [Card 2 UID]\t[count]
-	 * 		.			.
-	 * 		.			.
-	 * 		.			.
-	 * [Number of categories]
-	 * [Category 1 String representation]
-	 * [Category 2 String representation]
-	 * 				  .
-	 * 				  .
-	 * 				  .
+	 * Write this Deck to a file, without a changelog and uncompressed.
 	 * 
 	 * @param file File to save to
-	 * @throws IOException
+	 * @throws IOException If the file can't be written
+	 * @see DeckFile#save(File, Deck, String, boolean)
 	 */
 	public void save(File file) throws IOException
 	{
-		try (PrintWriter wr = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF8")))
-		{
-			wr.println(String.valueOf(size()));
-			for (DeckEntry e: masterList)
-				wr.println(e.card.id() + "\t" + e.count + "\t" + DATE_FORMAT.format(e.date));
-			wr.println(String.valueOf(categories.size()));
-			for (Category c: categories.values())
-				wr.println(c.toString());
-		} 
+		DeckFile.save(file, this, "", false);
 	}
 	
 	/**
@@ -1566,20 +2237,15 @@ public class Deck implements CardList
 			change[c] = n - e.count;
 			Event event = new Event().cardsChanged(change);
 			
+			for (Category category: e.categories)
+				category.total += n - e.count;
 			e.count = n;
 			if (e.count == 0)
-			{
-				masterList.remove(e);
-				for (Category category: categories.values())
-				{
-					category.filtrate.remove(e.card);
-					category.spec.getWhitelist().remove(e.card);
-					category.spec.getBlacklist().remove(e.card);
-				}
-			}
+				removeEntry(e);
+			else
+				counts = counts.plus(c, n);
 			
-			for (DeckListener listener: listeners)
-				listener.deckChanged(event);
+			fire(event);
 			
 			return true;
 		}
@@ -1599,6 +2265,19 @@ public class Deck implements CardList
 		return set(masterList[index].card, n);
 	}
 	
+	/**
+	 * @return A Snapshot of the number of copies of each Card in this Deck.  The cards
+	 * are shared rather than copied, so this only takes O(k log k) time for the k
+	 * categories, whose totals are copied in order of rank.  The Snapshot is not
+	 * affected by later changes to the Deck.
+	 */
+	public Snapshot snapshot()
+	{
+		Map<String, Integer> categoryTotals = new LinkedHashMap<String, Integer>();
+		categories.values().stream().sorted((a, b) -> a.rank - b.rank).forEach((c) -> categoryTotals[c.spec.getName()] = c.total);
+		return new Snapshot(version, counts, total, land, categoryTotals);
+	}
+	
 	/**
 	 * @return The number of unique Cards in this Deck.
 	 */
@@ -1663,8 +2342,7 @@ public class Deck implements CardList
 					categories[name].rank = target;
 					
 					Event event = new Event().ranksChanged(oldRanks);
-					for (DeckListener listener: listeners)
-						listener.deckChanged(event);
+					fire(event);
 					return true;
 				}
 			}
@@ -1681,6 +2359,15 @@ public class Deck implements CardList
 		return stream().toArray(Card[]::new);
 	}
 
+	/**
+	 * @return The version of this Deck, which changes every time the Deck does.  Two
+	 * {@link Snapshot}s with the same version have the same contents.
+	 */
+	public long version()
+	{
+		return version;
+	}
+	
 	/**
 	 * @return The number of Cards in this Deck.
 	 */
@@ -0,0 +1,177 @@
+package editor.collection.deck;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import editor.database.card.Card;
+
+/**
+ * This class represents the differences between two versions of a Deck, as given by
+ * {@link Deck.Snapshot}s.  Cards are sorted into those that were added to the Deck,
+ * those that were removed from it entirely, and those whose number of copies changed.
+ * Finding the differences only looks at the parts of the snapshots that differ, so it
+ * takes time proportional to the number of changes rather than to the size of the Deck.
+ *
+ * @author Alec Roelke
+ */
+public class DeckDiff
+{
+	/**
+	 * This class represents a change in the number of copies of a Card.
+	 *
+	 * @author Alec Roelke
+	 */
+	public static class Change
+	{
+		/**
+		 * Card that changed.
+		 */
+		public final Card card;
+		/**
+		 * Number of copies of the Card before the change.
+		 */
+		public final int before;
+		/**
+		 * Number of copies of the Card after the change.
+		 */
+		public final int after;
+
+		/**
+		 * Create a new Change.
+		 *
+		 * @param c Card that changed
+		 * @param b Number of copies before the change
+		 * @param a Number of copies after the change
+		 */
+		private Change(Card c, int b, int a)
+		{
+			card = c;
+			before = b;
+			after = a;
+		}
+
+		/**
+		 * @return The number of copies that were added, which is negative if copies
+		 * were removed.
+		 */
+		public int delta()
+		{
+			return after - before;
+		}
+
+		/**
+		 * @return A String representation of this Change as a line of a changelog, which
+		 * is the number of copies added or removed followed by the Card's name and expansion.
+		 */
+		@Override
+		public String toString()
+		{
+			return (delta() > 0 ? "+" : "") + delta() + "x " + card.unifiedName() + " (" + card.expansion().name + ")";
+		}
+	}
+
+	/**
+	 * Cards that were not in the Deck before.
+	 */
+	private List<Change> added;
+	/**
+	 * Cards that are no longer in the Deck.
+	 */
+	private List<Change> removed;
+	/**
+	 * Cards that were in the Deck before and still are, but with a different number
+	 * of copies.
+	 */
+	private List<Change> changed;
+
+	/**
+	 * Create a new DeckDiff containing the differences between two snapshots of a Deck.
+	 *
+	 * @param before Earlier snapshot
+	 * @param after Later snapshot
+	 */
+	public DeckDiff(Deck.Snapshot before, Deck.Snapshot after)
+	{
+		added = new ArrayList<Change>();
+		removed = new ArrayList<Change>();
+		changed = new ArrayList<Change>();
+		before.difference(after, (c, b, a) -> {
+			if (b == null)
+				added.add(new Change(c, 0, a));
+			else if (a == null)
+				removed.add(new Change(c, b, 0));
+			else
+				changed.add(new Change(c, b, a));
+		});
+		added.sort((a, b) -> a.card.compareName(b.card));
+		removed.sort((a, b) -> a.card.compareName(b.card));
+		changed.sort((a, b) -> a.card.compareName(b.card));
+	}
+
+	/**
+	 * @return The Cards that were added to the Deck, sorted by name.
+	 */
+	public List<Change> added()
+	{
+		return Collections.unmodifiableList(added);
+	}
+
+	/**
+	 * @return The Cards that were in the Deck before and after but with different numbers
+	 * of copies, sorted by name.
+	 */
+	public List<Change> changed()
+	{
+		return Collections.unmodifiableList(changed);
+	}
+
+	/**
+	 * @return <code>true</code> if there are no differences, and <code>false</code>
+	 * otherwise.
+	 */
+	public boolean isEmpty()
+	{
+		return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+	}
+
+	/**
+	 * @return The Cards that were removed from the Deck entirely, sorted by name.
+	 */
+	public List<Change> removed()
+	{
+		return Collections.unmodifiableList(removed);
+	}
+
+	/**
+	 * Write the differences as lines of a changelog.  Removals and decreases in copies
+	 * come first, followed by additions and increases.
+	 *
+	 * @param str StringBuilder to write to
+	 */
+	public void write(StringBuilder str)
+	{
+		for (Change c: removed)
+			str.append(c).append('\n');
+		for (Change c: changed)
+			if (c.delta() < 0)
+				str.append(c).append('\n');
+		for (Change c: changed)
+			if (c.delta() > 0)
+				str.append(c).append('\n');
+		for (Change c: added)
+			str.append(c).append('\n');
+	}
+
+	/**
+	 * @return The differences as lines of a changelog.
+	 * @see #write(StringBuilder)
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder str = new StringBuilder();
+		write(str);
+		return str.toString();
+	}
+}
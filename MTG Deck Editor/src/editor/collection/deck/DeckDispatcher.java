@@ -0,0 +1,147 @@
+package editor.collection.deck;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class passes changes to a Deck on to a {@link DeckListener} later instead of
+ * while the changes are being made, so a listener that takes a long time doesn't slow
+ * down editing.  Events that arrive before the listener gets to them are queued, and
+ * consecutive events that only changed cards are merged into one.  Events are sent to
+ * the listener using an {@link Executor} chosen by the listener, and no more often than
+ * a minimum interval, such as once per {@link #FRAME frame} for listeners that update
+ * the user interface.
+ * <p>
+ * Because events are sent late, the Deck may have changed again by the time the
+ * listener receives them.  Listeners that look at the Deck itself rather than just
+ * at the events will see its latest state.
+ *
+ * @author Alec Roelke
+ */
+public class DeckDispatcher implements DeckListener
+{
+	/**
+	 * Minimum interval in milliseconds between events sent to listeners that update
+	 * the user interface, which is about the length of one frame.
+	 */
+	public static final long FRAME = 16;
+	/**
+	 * Timer used to wait until the minimum interval has passed before sending events.
+	 */
+	private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor((r) -> {
+		Thread t = new Thread(r, "Deck event dispatcher");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/**
+	 * Listener receiving the events.
+	 */
+	private final DeckListener listener;
+	/**
+	 * Executor that sends events to the listener.
+	 */
+	private final Executor executor;
+	/**
+	 * Minimum time in milliseconds between sending events.
+	 */
+	private final long interval;
+	/**
+	 * Events that haven't been sent yet.
+	 */
+	private final List<Deck.Event> queue;
+	/**
+	 * Whether or not the queued events are waiting to be sent.
+	 */
+	private boolean scheduled;
+	/**
+	 * Time in nanoseconds when events were last sent.
+	 */
+	private long last;
+
+	/**
+	 * Create a new DeckDispatcher.
+	 *
+	 * @param l Listener to send events to
+	 * @param e Executor to send events with
+	 * @param i Minimum time in milliseconds between sending events
+	 * @throws IllegalArgumentException If the interval is negative
+	 */
+	public DeckDispatcher(DeckListener l, Executor e, long i)
+	{
+		if (i < 0)
+			throw new IllegalArgumentException("negative dispatch interval " + i);
+		listener = l;
+		executor = e;
+		interval = i;
+		queue = new ArrayList<Deck.Event>();
+		scheduled = false;
+		last = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(i);
+	}
+
+	/**
+	 * Create a new DeckDispatcher that sends events as soon as possible.
+	 *
+	 * @param l Listener to send events to
+	 * @param e Executor to send events with
+	 */
+	public DeckDispatcher(DeckListener l, Executor e)
+	{
+		this(l, e, 0);
+	}
+
+	/**
+	 * Queue an event to be sent to the listener, merging it with the previous one if
+	 * both only changed cards.  If events aren't already waiting to be sent, schedule
+	 * them to be sent once the minimum interval has passed.
+	 *
+	 * @param e Event to queue
+	 */
+	@Override
+	public synchronized void deckChanged(Deck.Event e)
+	{
+		if (!queue.isEmpty() && queue[queue.size() - 1].cardsOnly() && e.cardsOnly())
+			queue[queue.size() - 1] = queue[queue.size() - 1].merge(e);
+		else
+			queue.add(e);
+
+		if (!scheduled)
+		{
+			scheduled = true;
+			long wait = TimeUnit.MILLISECONDS.toNanos(interval) - (System.nanoTime() - last);
+			if (wait > 0)
+				TIMER.schedule(() -> executor.execute(this::dispatch), wait, TimeUnit.NANOSECONDS);
+			else
+				executor.execute(this::dispatch);
+		}
+	}
+
+	/**
+	 * Send the queued events to the listener in the order they happened.
+	 */
+	private void dispatch()
+	{
+		List<Deck.Event> events;
+		synchronized (this)
+		{
+			events = new ArrayList<Deck.Event>(queue);
+			queue.clear();
+			scheduled = false;
+			last = System.nanoTime();
+		}
+		for (Deck.Event e: events)
+			listener.deckChanged(e);
+	}
+
+	/**
+	 * @return The listener events are sent to.
+	 */
+	public DeckListener listener()
+	{
+		return listener;
+	}
+}
@@ -0,0 +1,678 @@
+package editor.collection.deck;
+
+import java.awt.Color;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import editor.collection.CardList;
+import editor.collection.Inventory;
+import editor.collection.category.CategorySpec;
+import editor.database.card.Card;
+import editor.filter.Filter;
+import editor.filter.FilterGroup;
+
+/**
+ * This class reads and writes deck files.  Version 2 deck files are binary and start with
+ * a header containing the location of each of their sections, so the cards, categories,
+ * and changelog can each be read without reading the others.  Card UIDs are only stored
+ * once, in a table at the beginning of the file, and everything else refers to cards by
+ * their position in the table.  Each section can optionally be compressed.  Files are
+ * written to a temporary file first, which then replaces the original file, so a failure
+ * while saving doesn't corrupt an existing deck.
+ * <p>
+ * Legacy deck files, which are text files containing the number of cards, a line for each
+ * card, the number of categories, a line for each category, and the changelog, can still
+ * be read, but are never written.
+ *
+ * @author Alec Roelke
+ */
+public class DeckFile
+{
+	/**
+	 * This class represents a card and its number of copies as read from a deck file.
+	 *
+	 * @author Alec Roelke
+	 */
+	public static class CardRecord
+	{
+		/**
+		 * UID of the card.
+		 */
+		public final String id;
+		/**
+		 * Number of copies of the card.
+		 */
+		public final int count;
+		/**
+		 * Date the card was added to the deck.
+		 */
+		public final Date added;
+
+		/**
+		 * Create a new CardRecord.
+		 *
+		 * @param i UID of the card
+		 * @param n Number of copies of the card
+		 * @param d Date the card was added
+		 */
+		private CardRecord(String i, int n, Date d)
+		{
+			id = i;
+			count = n;
+			added = d;
+		}
+	}
+
+	/**
+	 * Bytes identifying a version 2 (or later) deck file.
+	 */
+	private static final byte[] MAGIC = {'M', 'T', 'G', 'D'};
+	/**
+	 * Latest version of the deck file format.
+	 */
+	public static final int VERSION = 2;
+	/**
+	 * Flag indicating that the sections of a file are compressed.
+	 */
+	private static final int COMPRESSED = 1;
+	/**
+	 * Index of the card UID table section.
+	 */
+	private static final int IDS = 0;
+	/**
+	 * Index of the card section.
+	 */
+	private static final int CARDS = 1;
+	/**
+	 * Index of the category section.
+	 */
+	private static final int CATEGORIES = 2;
+	/**
+	 * Index of the changelog section.
+	 */
+	private static final int CHANGELOG = 3;
+	/**
+	 * Number of sections in a file.
+	 */
+	private static final int SECTIONS = 4;
+	/**
+	 * Size of the header of a file, which contains the magic bytes, the version, the
+	 * flags, and the offset and length of each section.
+	 */
+	private static final int HEADER_SIZE = MAGIC.length + Integer.BYTES + 1 + SECTIONS*(Long.BYTES + Integer.BYTES);
+	/**
+	 * Number of bytes at the beginning of a file that are checked to see if it could be
+	 * a legacy deck file before it is read.
+	 */
+	private static final int LEGACY_PREFIX = 16;
+	/**
+	 * Pattern the beginning of a legacy deck file matches, which is a line containing
+	 * the number of cards.
+	 */
+	private static final Pattern LEGACY_START = Pattern.compile("(?s)[ \\t]*\\d{1,9}[ \\t]*\\r?\\n.*");
+
+	/**
+	 * Open a deck file and read its header.  If it is a legacy file, the whole file is
+	 * read, since its sections can't be found without reading the ones before them.
+	 *
+	 * @param file File to open
+	 * @return The opened DeckFile.
+	 * @throws IOException If the file can't be read or its header is invalid
+	 */
+	public static DeckFile open(File file) throws IOException
+	{
+		return open(file, false);
+	}
+
+	/**
+	 * Read only the cards in a deck file, such as when indexing many files.  Only the
+	 * card UID table and the cards are read from a version 2 file, and only the lines
+	 * containing cards are read from a legacy file.
+	 *
+	 * @param file File to read
+	 * @return The cards in the file, in the order they were saved.
+	 * @throws IOException If the file can't be read or is not a deck file
+	 */
+	public static List<CardRecord> readCards(File file) throws IOException
+	{
+		return open(file, true).cards();
+	}
+
+	/**
+	 * Open a deck file and read its header, or read a legacy file.
+	 *
+	 * @param file File to open
+	 * @param cardsOnly Whether or not to stop reading a legacy file after its cards
+	 * @return The opened DeckFile.
+	 * @throws IOException If the file can't be read or its header is invalid
+	 */
+	private static DeckFile open(File file, boolean cardsOnly) throws IOException
+	{
+		try (RandomAccessFile in = new RandomAccessFile(file, "r"))
+		{
+			byte[] magic = new byte[MAGIC.length];
+			if (in.length() < HEADER_SIZE || in.read(magic) < magic.length || !Arrays.equals(magic, MAGIC))
+			{
+				// Don't hand arbitrary files to the legacy reader, which reads whole lines
+				byte[] prefix = new byte[(int)Math.min(LEGACY_PREFIX, in.length())];
+				in.seek(0);
+				in.readFully(prefix);
+				if (!LEGACY_START.matcher(new String(prefix, StandardCharsets.ISO_8859_1)).matches())
+					throw new IOException("not a deck file");
+				return readLegacy(file, cardsOnly);
+			}
+
+			int version = in.readInt();
+			if (version > VERSION)
+				throw new IOException("deck file version " + version + " is newer than supported version " + VERSION);
+			int flags = in.readByte();
+			long[] offsets = new long[SECTIONS];
+			int[] lengths = new int[SECTIONS];
+			for (int i = 0; i < SECTIONS; i++)
+			{
+				offsets[i] = in.readLong();
+				lengths[i] = in.readInt();
+				if (offsets[i] < HEADER_SIZE || lengths[i] < 0 || offsets[i] + lengths[i] > in.length())
+					throw new IOException("deck file section " + i + " is out of bounds");
+			}
+			return new DeckFile(file, version, (flags & COMPRESSED) != 0, offsets, lengths);
+		}
+	}
+
+	/**
+	 * Read a legacy deck file.
+	 *
+	 * @param file File to read
+	 * @param cardsOnly Whether or not to stop reading after the cards
+	 * @return A DeckFile containing the contents of the file.
+	 * @throws IOException If the file can't be read or is not a deck file
+	 */
+	private static DeckFile readLegacy(File file, boolean cardsOnly) throws IOException
+	{
+		try (BufferedReader rd = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)))
+		{
+			SimpleDateFormat format = (SimpleDateFormat)Deck.DATE_FORMAT.clone();
+			DeckFile deckFile = new DeckFile(file, 1, false, null, null);
+			deckFile.cards = new ArrayList<CardRecord>();
+			deckFile.legacyCategories = new ArrayList<String>();
+
+			int cards = Integer.parseInt(rd.readLine().trim());
+			for (int i = 0; i < cards; i++)
+			{
+				String[] card = rd.readLine().trim().split("\t");
+				deckFile.cards.add(new CardRecord(card[0], Integer.parseInt(card[1]), format.parse(card[2])));
+			}
+			if (cardsOnly)
+				return deckFile;
+			int categories = Integer.parseInt(rd.readLine().trim());
+			for (int i = 0; i < categories; i++)
+				deckFile.legacyCategories.add(rd.readLine());
+			StringBuilder changelog = new StringBuilder();
+			String line;
+			while ((line = rd.readLine()) != null)
+				changelog.append(line).append('\n');
+			deckFile.changelog = changelog.toString();
+			return deckFile;
+		}
+		catch (NumberFormatException | ArrayIndexOutOfBoundsException | NullPointerException | ParseException e)
+		{
+			throw new IOException("not a deck file", e);
+		}
+	}
+
+	/**
+	 * Save a Deck to a file in the latest format.  The file is written to a temporary
+	 * file next to it first, which is then moved over the original file.
+	 *
+	 * @param file File to save to
+	 * @param deck Deck to save
+	 * @param changelog Changelog to save with the Deck
+	 * @param compress Whether or not to compress the sections of the file
+	 * @throws IOException If the file can't be written
+	 */
+	public static void save(File file, Deck deck, String changelog, boolean compress) throws IOException
+	{
+		List<String> ids = new ArrayList<String>();
+		Map<Card, Integer> indices = new HashMap<Card, Integer>();
+		for (Card c: deck)
+		{
+			indices[c] = ids.size();
+			ids.add(c.id());
+		}
+		for (CategorySpec spec: deck.categories())
+		{
+			Set<Card> exceptions = new HashSet<Card>(spec.getWhitelist());
+			exceptions.addAll(spec.getBlacklist());
+			for (Card c: exceptions)
+			{
+				if (!indices.containsKey(c))
+				{
+					indices[c] = ids.size();
+					ids.add(c.id());
+				}
+			}
+		}
+
+		byte[][] sections = new byte[SECTIONS][];
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(section(bytes, compress)))
+		{
+			out.writeInt(ids.size());
+			for (String id: ids)
+				writeString(out, id);
+		}
+		sections[IDS] = bytes.toByteArray();
+
+		bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(section(bytes, compress)))
+		{
+			out.writeInt(deck.size());
+			for (Card c: deck)
+			{
+				CardList.Entry e = deck.getData(c);
+				out.writeInt(indices[c]);
+				out.writeInt(e.count());
+				out.writeLong(e.dateAdded().getTime());
+			}
+		}
+		sections[CARDS] = bytes.toByteArray();
+
+		bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(section(bytes, compress)))
+		{
+			out.writeInt(deck.numCategories());
+			for (CategorySpec spec: deck.categories())
+			{
+				writeString(out, spec.getName());
+				out.writeInt(spec.getColor().getRGB());
+				writeString(out, spec.getFilter().toString());
+				out.writeInt(spec.getWhitelist().size());
+				for (Card c: spec.getWhitelist())
+					out.writeInt(indices[c]);
+				out.writeInt(spec.getBlacklist().size());
+				for (Card c: spec.getBlacklist())
+					out.writeInt(indices[c]);
+			}
+		}
+		sections[CATEGORIES] = bytes.toByteArray();
+
+		bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(section(bytes, compress)))
+		{
+			writeString(out, changelog);
+		}
+		sections[CHANGELOG] = bytes.toByteArray();
+
+		File tmp = new File(file.getPath() + ".tmp");
+		try (FileOutputStream stream = new FileOutputStream(tmp); DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream)))
+		{
+			out.write(MAGIC);
+			out.writeInt(VERSION);
+			out.writeByte(compress ? COMPRESSED : 0);
+			long offset = HEADER_SIZE;
+			for (byte[] section: sections)
+			{
+				out.writeLong(offset);
+				out.writeInt(section.length);
+				offset += section.length;
+			}
+			for (byte[] section: sections)
+				out.write(section);
+			// Make sure the contents are on disk before they replace the old file
+			out.flush();
+			stream.getFD().sync();
+		}
+		catch (IOException e)
+		{
+			tmp.delete();
+			throw e;
+		}
+		replace(tmp, file);
+	}
+
+	/**
+	 * Replace a file with a temporary file that was written next to it, atomically if
+	 * the file system supports it.  The temporary file should have been synced to disk
+	 * first, so a crash can't leave the replaced file empty.
+	 *
+	 * @param tmp Temporary file containing the new contents
+	 * @param file File to replace
+	 * @throws IOException If the file can't be replaced
+	 */
+	static void replace(File tmp, File file) throws IOException
+	{
+		try
+		{
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException e)
+		{
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Wrap a stream that a section is being written to in a compressing stream if
+	 * sections should be compressed.
+	 *
+	 * @param out Stream to wrap
+	 * @param compress Whether or not to compress
+	 * @return The stream to write the section to.
+	 * @throws IOException If the compressing stream can't be created
+	 */
+	private static OutputStream section(OutputStream out, boolean compress) throws IOException
+	{
+		return compress ? new GZIPOutputStream(out) : out;
+	}
+
+	/**
+	 * Write a String of any length as its length in bytes followed by its UTF-8 bytes.
+	 *
+	 * @param out Stream to write to
+	 * @param s String to write
+	 * @throws IOException If the String can't be written
+	 */
+	static void writeString(DataOutputStream out, String s) throws IOException
+	{
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(b.length);
+		out.write(b);
+	}
+
+	/**
+	 * Read the number of items that follow in a stream, making sure that the rest of the
+	 * stream is long enough to hold them so a corrupt file can't cause a huge allocation.
+	 *
+	 * @param in Stream to read from
+	 * @param size Minimum number of bytes each item takes up
+	 * @return The number of items.
+	 * @throws IOException If the number can't be read or is out of bounds
+	 */
+	static int readCount(DataInputStream in, int size) throws IOException
+	{
+		int n = in.readInt();
+		if (n < 0 || n > in.available()/size)
+			throw new IOException("count " + n + " is out of bounds");
+		return n;
+	}
+
+	/**
+	 * Read a String written by {@link #writeString(DataOutputStream, String)}.
+	 *
+	 * @param in Stream to read from
+	 * @return The String that was read.
+	 * @throws IOException If the String can't be read or its length is out of bounds
+	 */
+	static String readString(DataInputStream in) throws IOException
+	{
+		byte[] b = new byte[readCount(in, 1)];
+		in.readFully(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * File this DeckFile reads from.
+	 */
+	private File file;
+	/**
+	 * Version of the format of the file.
+	 */
+	private int version;
+	/**
+	 * Whether or not the sections of the file are compressed.
+	 */
+	private boolean compressed;
+	/**
+	 * Offset of each section from the beginning of the file.
+	 */
+	private long[] offsets;
+	/**
+	 * Length in bytes of each section.
+	 */
+	private int[] lengths;
+	/**
+	 * Card UIDs in the file, or <code>null</code> if they haven't been read yet.
+	 */
+	private List<String> ids;
+	/**
+	 * Cards in the file, or <code>null</code> if they haven't been read yet.
+	 */
+	private List<CardRecord> cards;
+	/**
+	 * Category Strings in a legacy file.
+	 */
+	private List<String> legacyCategories;
+	/**
+	 * Changelog in the file, or <code>null</code> if it hasn't been read yet.
+	 */
+	private String changelog;
+
+	/**
+	 * Create a new DeckFile.
+	 *
+	 * @param f File to read from
+	 * @param v Version of the file
+	 * @param c Whether or not the file's sections are compressed
+	 * @param o Offsets of the file's sections
+	 * @param l Lengths of the file's sections
+	 */
+	private DeckFile(File f, int v, boolean c, long[] o, int[] l)
+	{
+		file = f;
+		version = v;
+		compressed = c;
+		offsets = o;
+		lengths = l;
+		ids = null;
+		cards = null;
+		legacyCategories = null;
+		changelog = null;
+	}
+
+	/**
+	 * Open a stream over a section of the file.  Compressed sections are decompressed
+	 * all at once, so the stream always knows how many bytes are left in the section.
+	 *
+	 * @param section Index of the section to read
+	 * @return A stream containing the (decompressed) contents of the section.
+	 * @throws IOException If the section can't be read
+	 */
+	private DataInputStream read(int section) throws IOException
+	{
+		byte[] b = new byte[lengths[section]];
+		try (RandomAccessFile in = new RandomAccessFile(file, "r"))
+		{
+			in.seek(offsets[section]);
+			in.readFully(b);
+		}
+		if (compressed)
+		{
+			try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(b)))
+			{
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+				int n;
+				while ((n = in.read(buffer)) > 0)
+					out.write(buffer, 0, n);
+				b = out.toByteArray();
+			}
+		}
+		return new DataInputStream(new ByteArrayInputStream(b));
+	}
+
+	/**
+	 * @return The card UIDs in the file, in the order they appear in its table.
+	 * @throws IOException If the table can't be read
+	 */
+	private List<String> ids() throws IOException
+	{
+		if (ids == null)
+		{
+			try (DataInputStream in = read(IDS))
+			{
+				int n = readCount(in, Integer.BYTES);
+				ids = new ArrayList<String>(n);
+				for (int i = 0; i < n; i++)
+					ids.add(readString(in));
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * Look up the cards corresponding to entries in the card UID table.
+	 *
+	 * @param in Stream containing the number of entries followed by their indices
+	 * @param inventory Inventory to find cards in
+	 * @return The set of cards.
+	 * @throws IOException If the entries can't be read or refer to cards that don't exist
+	 */
+	private Set<Card> exceptions(DataInputStream in, Inventory inventory) throws IOException
+	{
+		int n = readCount(in, Integer.BYTES);
+		Set<Card> exceptions = new HashSet<Card>();
+		for (int i = 0; i < n; i++)
+		{
+			int index = in.readInt();
+			if (index < 0 || index >= ids().size())
+				throw new IOException("card index " + index + " is out of bounds");
+			Card c = inventory[ids()[index]];
+			if (c == null)
+				throw new IllegalStateException("Card with UID \"" + ids()[index] + "\" not found");
+			exceptions.add(c);
+		}
+		return exceptions;
+	}
+
+	/**
+	 * @return The cards in the file, in the order they were saved.
+	 * @throws IOException If the cards can't be read
+	 */
+	public List<CardRecord> cards() throws IOException
+	{
+		if (cards == null)
+		{
+			try (DataInputStream in = read(CARDS))
+			{
+				int n = readCount(in, 2*Integer.BYTES + Long.BYTES);
+				cards = new ArrayList<CardRecord>(n);
+				for (int i = 0; i < n; i++)
+				{
+					int index = in.readInt();
+					if (index < 0 || index >= ids().size())
+						throw new IOException("card index " + index + " is out of bounds");
+					cards.add(new CardRecord(ids()[index], in.readInt(), new Date(in.readLong())));
+				}
+			}
+		}
+		return Collections.unmodifiableList(cards);
+	}
+
+	/**
+	 * Read the categories in the file.  Each call creates new CategorySpecs.
+	 *
+	 * @param inventory Inventory containing the cards in the categories' whitelists and
+	 * blacklists
+	 * @return The categories in the file, in the order they were saved.
+	 * @throws IOException If the categories can't be read
+	 */
+	public List<CategorySpec> categories(Inventory inventory) throws IOException
+	{
+		List<CategorySpec> categories = new ArrayList<CategorySpec>();
+		if (legacyCategories != null)
+		{
+			for (String category: legacyCategories)
+				categories.add(new CategorySpec(category, inventory));
+		}
+		else
+		{
+			try (DataInputStream in = read(CATEGORIES))
+			{
+				int n = readCount(in, 5*Integer.BYTES);
+				for (int i = 0; i < n; i++)
+				{
+					String name = readString(in);
+					Color color = new Color(in.readInt(), true);
+					Filter filter = new FilterGroup();
+					filter.parse(readString(in));
+					Set<Card> whitelist = exceptions(in, inventory);
+					Set<Card> blacklist = exceptions(in, inventory);
+					categories.add(new CategorySpec(name, whitelist, blacklist, color, filter));
+				}
+			}
+		}
+		return categories;
+	}
+
+	/**
+	 * @return The changelog in the file.
+	 * @throws IOException If the changelog can't be read
+	 */
+	public String changelog() throws IOException
+	{
+		if (changelog == null)
+		{
+			try (DataInputStream in = read(CHANGELOG))
+			{
+				changelog = readString(in);
+			}
+		}
+		return changelog;
+	}
+
+	/**
+	 * @return <code>true</code> if the sections of the file are compressed, and
+	 * <code>false</code> otherwise.
+	 */
+	public boolean compressed()
+	{
+		return compressed;
+	}
+
+	/**
+	 * @return The file this DeckFile reads from.
+	 */
+	public File file()
+	{
+		return file;
+	}
+
+	/**
+	 * @return The version of the format of the file, which is 1 for legacy files.
+	 */
+	public int version()
+	{
+		return version;
+	}
+}
@@ -0,0 +1,373 @@
+package editor.collection.deck;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import editor.collection.Inventory;
+import editor.collection.category.CategorySpec;
+import editor.database.card.Card;
+
+/**
+ * This class records changes to a Deck in a journal file next to the Deck's file as
+ * they happen, so they can be recovered if the program exits without saving them.
+ * Each change is a single line of text, so recording one only costs a few bytes.
+ * Changes are buffered and written to disk in batches, either when enough of them
+ * have accumulated or when {@link #flush()} is called.  Once the Deck is saved, the
+ * journal is no longer needed and should be {@link #clear() cleared}.
+ * <p>
+ * The journal records changes in the number of copies of cards and the addition,
+ * removal, modification, and reordering of categories.  Including and excluding cards
+ * is recorded as a modification of the category.
+ * <p>
+ * Changes are recorded relative to the deck file as it was when the journal was
+ * started, so the journal begins with a header containing the file's modification
+ * time and size.  A journal whose header doesn't match its file, such as one left
+ * behind when the program stopped just after saving, is never replayed.
+ *
+ * @author Alec Roelke
+ */
+public class DeckJournal implements DeckListener
+{
+	/**
+	 * Extension added to a deck file's name to get the name of its journal.
+	 */
+	public static final String EXTENSION = ".journal";
+	/**
+	 * Number of records to buffer before writing them to disk.
+	 */
+	public static final int BATCH_SIZE = 32;
+	/**
+	 * Separator between the fields of a record.
+	 */
+	private static final String SEPARATOR = "\t";
+	/**
+	 * Record type for a change in the number of copies of a card.  Its fields are
+	 * the card's UID and the number of copies added (negative for removed).
+	 */
+	private static final String CARD = "C";
+	/**
+	 * Record type for an added category.  Its field is the category's String
+	 * representation.
+	 */
+	private static final String ADD_CATEGORY = "A";
+	/**
+	 * Record type for a modified category.  Its fields are the category's name
+	 * before it was changed and its new String representation.
+	 */
+	private static final String EDIT_CATEGORY = "E";
+	/**
+	 * Record type for a removed category.  Its field is the category's name.
+	 */
+	private static final String REMOVE_CATEGORY = "R";
+	/**
+	 * Record type for a change in a category's rank.  Its fields are the category's
+	 * name and its new rank.
+	 */
+	private static final String RANK = "K";
+	/**
+	 * Record type for the header.  Its fields are the modification time and size of
+	 * the deck file the changes are relative to.
+	 */
+	private static final String HEADER = "H";
+
+	/**
+	 * @param file Deck file to get the journal of
+	 * @return The journal file of the deck file.
+	 */
+	public static File journalFor(File file)
+	{
+		return new File(file.getPath() + EXTENSION);
+	}
+
+	/**
+	 * @param file Deck file to check
+	 * @return <code>true</code> if the deck file has a journal containing changes, and
+	 * <code>false</code> otherwise.
+	 */
+	public static boolean hasChanges(File file)
+	{
+		File journal = journalFor(file);
+		return journal.exists() && journal.length() > 0 && matches(file);
+	}
+
+	/**
+	 * @param file Deck file to check
+	 * @return The header a journal for the deck file in its current state should have.
+	 */
+	private static String header(File file)
+	{
+		return String.join(SEPARATOR, HEADER, String.valueOf(file.lastModified()), String.valueOf(file.length()));
+	}
+
+	/**
+	 * @param file Deck file to check
+	 * @return <code>true</code> if the deck file has a journal whose header matches
+	 * the deck file's current modification time and size, and <code>false</code>
+	 * otherwise.
+	 */
+	private static boolean matches(File file)
+	{
+		return header(file).equals(firstLine(journalFor(file)));
+	}
+
+	/**
+	 * @param journal Journal to read
+	 * @return The first line of the journal, which should be its header, or
+	 * <code>null</code> if it is empty or can't be read.
+	 */
+	private static String firstLine(File journal)
+	{
+		try (BufferedReader rd = Files.newBufferedReader(journal.toPath(), StandardCharsets.UTF_8))
+		{
+			return rd.readLine();
+		}
+		catch (IOException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Delete the journal of a deck file, if there is one.
+	 *
+	 * @param file Deck file whose journal should be deleted
+	 * @throws IOException If the journal exists but can't be deleted
+	 */
+	public static void discard(File file) throws IOException
+	{
+		Files.deleteIfExists(journalFor(file).toPath());
+	}
+
+	/**
+	 * Apply the changes recorded in the journal of a deck file to a Deck.  Replay stops
+	 * at the first record that is incomplete or can't be applied, which will usually be
+	 * one that was being written when the program stopped.  Consecutive changes to cards
+	 * are applied together.
+	 *
+	 * @param file Deck file whose journal should be replayed
+	 * @param deck Deck to apply the changes to, which should have been loaded from the file
+	 * @param inventory Inventory containing the cards in the journal
+	 * @return The number of records that were applied.
+	 * @throws IOException If the journal can't be read or was not written against the
+	 * current version of the deck file
+	 */
+	public static int replay(File file, Deck deck, Inventory inventory) throws IOException
+	{
+		String contents = new String(Files.readAllBytes(journalFor(file).toPath()), StandardCharsets.UTF_8);
+		int start = contents.indexOf('\n') + 1;
+		if (start == 0 || !contents.substring(0, start - 1).equals(header(file)))
+			throw new IOException("journal does not match the saved deck");
+		Map<Card, Integer> cards = new HashMap<Card, Integer>();
+		int applied = 0;
+		int end;
+		try
+		{
+			while ((end = contents.indexOf('\n', start)) >= 0)
+			{
+				String[] record = contents.substring(start, end).split(SEPARATOR, 3);
+				start = end + 1;
+				if (!record[0].equals(CARD) && !cards.isEmpty())
+				{
+					deck.applyAll(cards);
+					cards.clear();
+				}
+				switch (record[0])
+				{
+				case CARD:
+					Card c = inventory[record[1]];
+					if (c == null)
+						return applied;
+					cards.compute(c, (k, v) -> (v == null ? 0 : v) + Integer.parseInt(record[2]));
+					break;
+				case ADD_CATEGORY:
+					deck.addCategory(new CategorySpec(record[1], inventory));
+					break;
+				case EDIT_CATEGORY:
+					CategorySpec spec = deck.getCategorySpec(record[1]);
+					if (spec == null)
+						return applied;
+					spec.copy(new CategorySpec(record[2], inventory));
+					break;
+				case REMOVE_CATEGORY:
+					deck.removeCategory(record[1]);
+					break;
+				case RANK:
+					deck.swapCategoryRanks(record[1], Integer.parseInt(record[2]));
+					break;
+				default:
+					return applied;
+				}
+				applied++;
+			}
+		}
+		catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e)
+		{}
+		finally
+		{
+			if (!cards.isEmpty())
+				deck.applyAll(cards);
+		}
+		return applied;
+	}
+
+	/**
+	 * Deck whose changes are being recorded.
+	 */
+	private Deck deck;
+	/**
+	 * File the changes are recorded to.
+	 */
+	private File journal;
+	/**
+	 * Header identifying the version of the deck file the changes are relative to.
+	 */
+	private String header;
+	/**
+	 * Stream writing to the journal, or <code>null</code> if it hasn't been opened yet.
+	 */
+	private FileOutputStream out;
+	/**
+	 * Records that haven't been written to disk yet.
+	 */
+	private StringBuilder pending;
+	/**
+	 * Number of records that haven't been written to disk yet.
+	 */
+	private int count;
+
+	/**
+	 * Create a new DeckJournal that records changes to a Deck.  If the journal already
+	 * has changes in it that are relative to the current version of the file, new ones
+	 * are added after them; otherwise it is replaced when changes are first written.
+	 * The journal must be added to the Deck as a {@link DeckListener} to receive the
+	 * changes.
+	 *
+	 * @param f File the Deck was loaded from or saved to
+	 * @param d Deck to record changes for
+	 */
+	public DeckJournal(File f, Deck d)
+	{
+		deck = d;
+		journal = journalFor(f);
+		header = header(f);
+		out = null;
+		pending = new StringBuilder();
+		count = 0;
+	}
+
+	/**
+	 * Record the changes to the Deck.  If enough changes have accumulated, write them
+	 * to disk.
+	 *
+	 * @param e Event describing the changes
+	 */
+	@Override
+	public synchronized void deckChanged(Deck.Event e)
+	{
+		if (e.cardsChanged())
+		{
+			for (Card c: e.cardsAdded().keySet())
+				record(CARD, c.id(), String.valueOf(e.cardsAdded()[c]));
+			for (Card c: e.cardsRemoved().keySet())
+				record(CARD, c.id(), String.valueOf(-e.cardsRemoved()[c]));
+		}
+		if (e.categoriesRemoved())
+			for (String name: e.removedNames())
+				record(REMOVE_CATEGORY, name);
+		if (e.categoryAdded())
+			for (String name: e.addedNames())
+				record(ADD_CATEGORY, deck.getCategorySpec(name).toString());
+		if (e.categoryChanged())
+		{
+			CategorySpec.Event changes = e.categoryChanges();
+			String name = changes.nameChanged() ? changes.newName() : e.categoryName();
+			record(EDIT_CATEGORY, e.categoryName(), deck.getCategorySpec(name).toString());
+		}
+		if (e.ranksChanged())
+			for (String name: e.oldRanks().keySet())
+				record(RANK, name, String.valueOf(deck.getCategoryRank(name)));
+
+		if (count >= BATCH_SIZE)
+		{
+			try
+			{
+				flush();
+			}
+			catch (IOException x)
+			{
+				x.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Add a record to the buffer.
+	 *
+	 * @param fields Fields of the record, starting with its type
+	 */
+	private void record(String... fields)
+	{
+		pending.append(String.join(SEPARATOR, fields)).append('\n');
+		count++;
+	}
+
+	/**
+	 * Write the buffered records to the journal and make sure they have reached the disk.
+	 *
+	 * @throws IOException If the records can't be written
+	 */
+	public synchronized void flush() throws IOException
+	{
+		if (count > 0)
+		{
+			if (out == null)
+			{
+				boolean append = journal.exists() && header.equals(firstLine(journal));
+				out = new FileOutputStream(journal, append);
+				if (!append)
+					pending.insert(0, header + '\n');
+			}
+			out.write(pending.toString().getBytes(StandardCharsets.UTF_8));
+			out.getFD().sync();
+			pending.setLength(0);
+			count = 0;
+		}
+	}
+
+	/**
+	 * Discard all of the recorded changes, including any that haven't been written
+	 * yet, and delete the journal.  This should be done when the Deck is saved or its
+	 * changes are discarded.  The journal continues recording changes made afterward.
+	 *
+	 * @throws IOException If the journal can't be deleted
+	 */
+	public synchronized void clear() throws IOException
+	{
+		pending.setLength(0);
+		count = 0;
+		close();
+		Files.deleteIfExists(journal.toPath());
+	}
+
+	/**
+	 * Write any buffered records and close the journal.  If more changes are recorded,
+	 * it will be opened again.
+	 *
+	 * @throws IOException If the records can't be written or the journal can't be closed
+	 */
+	public synchronized void close() throws IOException
+	{
+		flush();
+		if (out != null)
+		{
+			out.close();
+			out = null;
+		}
+	}
+}
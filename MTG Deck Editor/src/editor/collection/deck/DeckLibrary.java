@@ -0,0 +1,435 @@
+package editor.collection.deck;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import editor.database.card.Card;
+
+/**
+ * This class indexes a directory tree of deck files so that the decks containing a
+ * card can be found without opening them.  The index maps each card's UID onto the
+ * files containing it and how many copies each contains, and it is saved to a file
+ * so it doesn't have to be built again every time.  When it is {@link #update() updated},
+ * only deck files that are new or have been modified since they were last indexed are
+ * read, and those are read in parallel.  Only the cards are read from each file.
+ * <p>
+ * Files in the tree that aren't deck files are remembered as empty so they aren't read
+ * again until they are modified.  Journals and temporary files written while saving
+ * decks are skipped.
+ *
+ * @author Alec Roelke
+ */
+public class DeckLibrary
+{
+	/**
+	 * Name of the index file that is saved at the root of the tree by default.
+	 */
+	public static final String INDEX_FILE = ".decklibrary";
+	/**
+	 * Bytes identifying an index file.
+	 */
+	private static final byte[] MAGIC = {'M', 'T', 'G', 'L'};
+	/**
+	 * Latest version of the index file format.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * This class represents a deck file as it was when it was indexed.
+	 *
+	 * @author Alec Roelke
+	 */
+	private static class Indexed
+	{
+		/**
+		 * Modification time of the file when it was indexed.
+		 */
+		private final long modified;
+		/**
+		 * Size of the file when it was indexed.
+		 */
+		private final long length;
+		/**
+		 * Map of card UIDs onto the number of copies in the file.
+		 */
+		private final Map<String, Integer> cards;
+
+		/**
+		 * Create a new Indexed.
+		 *
+		 * @param m Modification time of the file
+		 * @param l Size of the file
+		 * @param c Map of card UIDs onto numbers of copies
+		 */
+		private Indexed(long m, long l, Map<String, Integer> c)
+		{
+			modified = m;
+			length = l;
+			cards = c;
+		}
+
+		/**
+		 * @param file File to check
+		 * @return <code>true</code> if the file has not changed since it was indexed,
+		 * and <code>false</code> otherwise.
+		 */
+		private boolean current(File file)
+		{
+			return file.lastModified() == modified && file.length() == length;
+		}
+	}
+
+	/**
+	 * Read a deck file for the index.
+	 *
+	 * @param file File to read
+	 * @return The file's entry in the index, which has no cards if the file is not a
+	 * deck file or is corrupt.
+	 */
+	private static Indexed read(File file)
+	{
+		long modified = file.lastModified();
+		long length = file.length();
+		Map<String, Integer> cards = new HashMap<String, Integer>();
+		try
+		{
+			for (DeckFile.CardRecord card: DeckFile.readCards(file))
+				cards.merge(card.id, card.count, Integer::sum);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			cards.clear();
+		}
+		return new Indexed(modified, length, cards);
+	}
+
+	/**
+	 * Stop indexing if a thread has been interrupted.
+	 *
+	 * @param caller Thread that is indexing
+	 * @throws CancellationException If the thread has been interrupted
+	 */
+	private static void checkInterrupted(Thread caller) throws CancellationException
+	{
+		if (caller.isInterrupted())
+			throw new CancellationException("Indexing was interrupted");
+	}
+
+	/**
+	 * Root of the directory tree that is indexed.
+	 */
+	private File root;
+	/**
+	 * File the index is saved to.
+	 */
+	private File index;
+	/**
+	 * Map of each indexed file onto its entry.
+	 */
+	private Map<File, Indexed> files;
+	/**
+	 * Map of card UIDs onto the files containing them and the number of copies in each.
+	 */
+	private Map<String, Map<File, Integer>> postings;
+
+	/**
+	 * Create a new DeckLibrary for a directory tree that saves its index at the root of
+	 * the tree.
+	 *
+	 * @param r Root of the tree
+	 */
+	public DeckLibrary(File r)
+	{
+		this(r, new File(r, INDEX_FILE));
+	}
+
+	/**
+	 * Create a new DeckLibrary for a directory tree.  Nothing is indexed until the index
+	 * is {@link #load() loaded} or {@link #update() updated}.
+	 *
+	 * @param r Root of the tree
+	 * @param i File to save the index to
+	 */
+	public DeckLibrary(File r, File i)
+	{
+		root = r;
+		index = i;
+		files = new HashMap<File, Indexed>();
+		postings = new HashMap<String, Map<File, Integer>>();
+	}
+
+	/**
+	 * Add a file's cards to the map of cards onto decks.
+	 *
+	 * @param file File to add
+	 * @param entry The file's entry in the index
+	 */
+	private void post(File file, Indexed entry)
+	{
+		for (Map.Entry<String, Integer> card: entry.cards.entrySet())
+			postings.computeIfAbsent(card.getKey(), (k) -> new HashMap<File, Integer>()).put(file, card.getValue());
+	}
+
+	/**
+	 * Remove a file's cards from the map of cards onto decks.
+	 *
+	 * @param file File to remove
+	 * @param entry The file's entry in the index
+	 */
+	private void unpost(File file, Indexed entry)
+	{
+		for (String id: entry.cards.keySet())
+		{
+			Map<File, Integer> containing = postings[id];
+			if (containing != null)
+			{
+				containing.remove(file);
+				if (containing.isEmpty())
+					postings.remove(id);
+			}
+		}
+	}
+
+	/**
+	 * @param c Card to look for
+	 * @return A map of the indexed deck files containing the card onto the number of
+	 * copies in each.
+	 */
+	public Map<File, Integer> decksContaining(Card c)
+	{
+		return decksContaining(c.id());
+	}
+
+	/**
+	 * @param id UID of the card to look for
+	 * @return A map of the indexed deck files containing the card onto the number of
+	 * copies in each.
+	 */
+	public synchronized Map<File, Integer> decksContaining(String id)
+	{
+		Map<File, Integer> containing = postings[id];
+		return containing == null ? Collections.emptyMap() : Collections.unmodifiableMap(new HashMap<File, Integer>(containing));
+	}
+
+	/**
+	 * @param file Deck file to look at
+	 * @return A map of the UIDs of the cards in the file onto the number of copies of
+	 * each, or an empty map if the file hasn't been indexed or isn't a deck file.
+	 */
+	public synchronized Map<String, Integer> cards(File file)
+	{
+		Indexed entry = files[file];
+		return entry == null ? Collections.emptyMap() : Collections.unmodifiableMap(entry.cards);
+	}
+
+	/**
+	 * @return The indexed files that are deck files.
+	 */
+	public synchronized List<File> decks()
+	{
+		return files.entrySet().stream().filter((e) -> !e.getValue().cards.isEmpty()).map(Map.Entry::getKey).collect(Collectors.toList());
+	}
+
+	/**
+	 * @return The file the index is saved to.
+	 */
+	public File indexFile()
+	{
+		return index;
+	}
+
+	/**
+	 * Load the index from its file, replacing anything that has been indexed.  If the
+	 * file doesn't exist, the index is left empty.
+	 *
+	 * @throws IOException If the file exists but can't be read or is not an index
+	 */
+	public synchronized void load() throws IOException
+	{
+		files.clear();
+		postings.clear();
+		if (!index.exists())
+			return;
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(index))))
+		{
+			byte[] magic = new byte[MAGIC.length];
+			in.readFully(magic);
+			if (!Arrays.equals(magic, MAGIC))
+				throw new IOException("not a deck library index");
+			int version = in.readInt();
+			if (version > VERSION)
+				throw new IOException("deck library index version " + version + " is newer than supported version " + VERSION);
+
+			int n = DeckFile.readCount(in, Integer.BYTES + 2*Long.BYTES);
+			List<File> paths = new ArrayList<File>(n);
+			List<Indexed> entries = new ArrayList<Indexed>(n);
+			for (int i = 0; i < n; i++)
+			{
+				paths.add(new File(DeckFile.readString(in)));
+				entries.add(new Indexed(in.readLong(), in.readLong(), new HashMap<String, Integer>()));
+			}
+			int ids = DeckFile.readCount(in, 2*Integer.BYTES);
+			for (int i = 0; i < ids; i++)
+			{
+				String id = DeckFile.readString(in);
+				int postings = DeckFile.readCount(in, 2*Integer.BYTES);
+				for (int j = 0; j < postings; j++)
+				{
+					int file = in.readInt();
+					if (file < 0 || file >= n)
+						throw new IOException("deck index " + file + " is out of bounds");
+					entries[file].cards[id] = in.readInt();
+				}
+			}
+			for (int i = 0; i < n; i++)
+			{
+				files[paths[i]] = entries[i];
+				post(paths[i], entries[i]);
+			}
+		}
+		catch (IOException e)
+		{
+			files.clear();
+			postings.clear();
+			throw e;
+		}
+	}
+
+	/**
+	 * Save the index to its file.  The file contains the indexed files, followed by
+	 * each card's UID and the files containing it.  It is written to a temporary file
+	 * first, which then replaces the existing index.  If the current thread is
+	 * interrupted, the existing index is left alone.
+	 *
+	 * @throws IOException If the index can't be written
+	 * @throws CancellationException If the current thread is interrupted while saving
+	 */
+	public synchronized void save() throws IOException, CancellationException
+	{
+		Thread caller = Thread.currentThread();
+		List<File> paths = new ArrayList<File>(files.keySet());
+		Map<File, Integer> indices = new HashMap<File, Integer>();
+		for (int i = 0; i < paths.size(); i++)
+			indices[paths[i]] = i;
+
+		File tmp = new File(index.getPath() + ".tmp");
+		try (FileOutputStream stream = new FileOutputStream(tmp); DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream)))
+		{
+			out.write(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(paths.size());
+			for (File file: paths)
+			{
+				DeckFile.writeString(out, file.getPath());
+				out.writeLong(files[file].modified);
+				out.writeLong(files[file].length);
+			}
+			out.writeInt(postings.size());
+			for (Map.Entry<String, Map<File, Integer>> card: postings.entrySet())
+			{
+				checkInterrupted(caller);
+				DeckFile.writeString(out, card.getKey());
+				out.writeInt(card.getValue().size());
+				for (Map.Entry<File, Integer> deck: card.getValue().entrySet())
+				{
+					out.writeInt(indices[deck.getKey()]);
+					out.writeInt(deck.getValue());
+				}
+			}
+			out.flush();
+			stream.getFD().sync();
+		}
+		catch (IOException | CancellationException e)
+		{
+			tmp.delete();
+			throw e;
+		}
+		DeckFile.replace(tmp, index);
+	}
+
+	/**
+	 * @return The root of the directory tree that is indexed.
+	 */
+	public File root()
+	{
+		return root;
+	}
+
+	/**
+	 * Bring the index up to date with the directory tree.  Files that are new or have
+	 * been modified since they were indexed are read in parallel, and files that no
+	 * longer exist are removed from the index.  Queries can still be answered while
+	 * the files are being read.  If the current thread is interrupted, indexing stops
+	 * and the index is left as it was.
+	 *
+	 * @return The number of files that were read.
+	 * @throws IOException If the directory tree can't be searched
+	 * @throws CancellationException If the current thread is interrupted while indexing
+	 */
+	public int update() throws IOException, CancellationException
+	{
+		Thread caller = Thread.currentThread();
+		Map<File, Indexed> known;
+		synchronized (this)
+		{
+			known = new HashMap<File, Indexed>(files);
+		}
+
+		List<File> found;
+		try (Stream<File> tree = Files.walk(root.toPath()).filter(Files::isRegularFile).map((p) -> p.toFile()))
+		{
+			found = tree.peek((f) -> checkInterrupted(caller))
+					.filter((f) -> !f.getName().endsWith(DeckJournal.EXTENSION) && !f.getName().endsWith(".tmp"))
+					.filter((f) -> !f.equals(index))
+					.collect(Collectors.toList());
+		}
+		catch (UncheckedIOException e)
+		{
+			throw e.getCause();
+		}
+		Map<File, Indexed> changed = found.parallelStream()
+				.filter((f) -> !known.containsKey(f) || !known[f].current(f))
+				.collect(Collectors.toConcurrentMap((f) -> f, (f) -> {
+					checkInterrupted(caller);
+					return read(f);
+				}));
+		Set<File> present = found.stream().collect(Collectors.toSet());
+
+		synchronized (this)
+		{
+			for (File file: new ArrayList<File>(files.keySet()))
+			{
+				if (!present.contains(file) || changed.containsKey(file))
+				{
+					unpost(file, files[file]);
+					files.remove(file);
+				}
+			}
+			for (Map.Entry<File, Indexed> entry: changed.entrySet())
+			{
+				files[entry.getKey()] = entry.getValue();
+				post(entry.getKey(), entry.getValue());
+			}
+		}
+		return changed.size();
+	}
+}
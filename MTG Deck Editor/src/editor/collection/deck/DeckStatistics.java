@@ -0,0 +1,220 @@
+package editor.collection.deck;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import editor.database.card.Card;
+import editor.database.characteristics.ManaType;
+
+/**
+ * This class keeps statistics about the cards in a Deck, such as its mana curve,
+ * average and median converted mana cost, land count, and color and type distributions.
+ * Rather than scanning the Deck whenever it changes, it is updated with the changes
+ * from each {@link Deck.Event}.  CMC statistics only count nonland cards, and all
+ * statistics count each copy of a card.
+ * 
+ * @author Alec Roelke
+ */
+public class DeckStatistics
+{
+	/**
+	 * Total number of cards, including copies.
+	 */
+	private int total;
+	/**
+	 * Number of land cards, including copies.
+	 */
+	private int land;
+	/**
+	 * Map of converted mana cost onto the number of nonland cards with that CMC.
+	 */
+	private TreeMap<Double, Integer> curve;
+	/**
+	 * Sum of the converted mana costs of the nonland cards.
+	 */
+	private double cmcSum;
+	/**
+	 * Number of cards of each color, indexed by {@link ManaType#ordinal()}.  Multicolored
+	 * cards count toward each of their colors.
+	 */
+	private int[] colors;
+	/**
+	 * Map of card type onto the number of cards with that type.
+	 */
+	private Map<String, Integer> types;
+	
+	/**
+	 * Create a new DeckStatistics for an empty Deck.
+	 */
+	public DeckStatistics()
+	{
+		total = 0;
+		land = 0;
+		curve = new TreeMap<Double, Integer>();
+		cmcSum = 0.0;
+		colors = new int[ManaType.values().length];
+		types = new HashMap<String, Integer>();
+	}
+	
+	/**
+	 * Create a new DeckStatistics containing the cards that are already in a Deck.
+	 * 
+	 * @param deck Deck to compute statistics for
+	 */
+	public DeckStatistics(Deck deck)
+	{
+		this();
+		for (Card c: deck)
+			add(c, deck.getData(c).count());
+	}
+	
+	/**
+	 * Update the statistics with the number of copies of a Card that were added
+	 * or removed.
+	 * 
+	 * @param c Card that was added or removed
+	 * @param n Number of copies added, which is negative if copies were removed
+	 */
+	public void add(Card c, int n)
+	{
+		if (n == 0)
+			return;
+		total += n;
+		if (c.typeContains("land"))
+			land += n;
+		else
+		{
+			double cmc = c.minCmc();
+			int count = curve.getOrDefault(cmc, 0) + n;
+			if (count > 0)
+				curve[cmc] = count;
+			else
+				curve.remove(cmc);
+			cmcSum += cmc*n;
+		}
+		int mask = c.colorMask();
+		for (ManaType color: ManaType.values())
+			if ((mask & color.mask()) != 0)
+				colors[color.ordinal()] += n;
+		for (String type: c.types())
+		{
+			int count = types.getOrDefault(type, 0) + n;
+			if (count > 0)
+				types[type] = count;
+			else
+				types.remove(type);
+		}
+	}
+	
+	/**
+	 * Update the statistics with the cards that were added to or removed from a Deck.
+	 * 
+	 * @param e Event describing the changes to the Deck
+	 */
+	public void update(Deck.Event e)
+	{
+		if (e.cardsChanged())
+		{
+			for (Map.Entry<Card, Integer> added: e.cardsAdded().entrySet())
+				add(added.getKey(), added.getValue());
+			for (Map.Entry<Card, Integer> removed: e.cardsRemoved().entrySet())
+				add(removed.getKey(), -removed.getValue());
+		}
+	}
+	
+	/**
+	 * @return The total number of cards, including copies.
+	 */
+	public int total()
+	{
+		return total;
+	}
+	
+	/**
+	 * @return The number of land cards, including copies.
+	 */
+	public int land()
+	{
+		return land;
+	}
+	
+	/**
+	 * @return The number of nonland cards, including copies.
+	 */
+	public int nonland()
+	{
+		return total - land;
+	}
+	
+	/**
+	 * @return A read-only view of the mana curve, which maps each converted mana cost
+	 * onto the number of nonland cards with it.
+	 */
+	public SortedMap<Double, Integer> curve()
+	{
+		return Collections.unmodifiableSortedMap(curve);
+	}
+	
+	/**
+	 * @return The average converted mana cost of the nonland cards, or 0 if there
+	 * are none.
+	 */
+	public double meanCmc()
+	{
+		return nonland() > 0 ? cmcSum/nonland() : 0.0;
+	}
+	
+	/**
+	 * @return The median converted mana cost of the nonland cards, or 0 if there are
+	 * none.  This only has to look at each distinct converted mana cost rather than
+	 * every card.
+	 */
+	public double medianCmc()
+	{
+		int n = nonland();
+		if (n <= 0)
+			return 0.0;
+		Double lower = null;
+		int seen = 0;
+		for (Map.Entry<Double, Integer> bin: curve.entrySet())
+		{
+			seen += bin.getValue();
+			if (lower == null && seen >= (n + 1)/2)
+				lower = bin.getKey();
+			if (seen >= n/2 + 1)
+				return n%2 == 0 ? (lower + bin.getKey())/2 : lower;
+		}
+		return lower == null ? 0.0 : lower;
+	}
+	
+	/**
+	 * @param color Color to count
+	 * @return The number of cards that have the given color, including multicolored
+	 * cards.
+	 */
+	public int count(ManaType color)
+	{
+		return colors[color.ordinal()];
+	}
+	
+	/**
+	 * @param type Card type to count
+	 * @return The number of cards with the given type.
+	 */
+	public int count(String type)
+	{
+		return types.getOrDefault(type, 0);
+	}
+	
+	/**
+	 * @return A read-only view of the map of each card type in the Deck onto the number
+	 * of cards with that type.
+	 */
+	public Map<String, Integer> types()
+	{
+		return Collections.unmodifiableMap(types);
+	}
+}
@@ -0,0 +1,363 @@
+package editor.collection.deck;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import editor.collection.Inventory;
+import editor.collection.category.CategorySpec;
+import editor.database.card.Card;
+import editor.filter.Filter;
+import editor.filter.FilterCache;
+import editor.filter.FilterGroup;
+
+/**
+ * This class represents a query over the decks in a {@link DeckLibrary}.  A query is
+ * made of clauses that must all be true for a deck to match.  Each clause counts the
+ * copies of the cards in a deck that pass through a {@link Filter}, optionally only
+ * counting cards in one of the deck's categories, and compares the count with a
+ * number, such as "at least 3 copies of X" or "no Y."
+ * <p>
+ * As a String, a query has one clause per line.  Each clause is written as its
+ * relation, the number to compare with, the name of the category surrounded by
+ * {@link Filter#BEGIN_GROUP} and {@link Filter#END_GROUP} (with nothing between them
+ * for the whole deck), and the String representation of the filter.
+ *
+ * @author Alec Roelke
+ */
+public class LibraryQuery
+{
+	/**
+	 * This enum represents a comparison between the number of copies of cards in a deck
+	 * and the number a clause wants.
+	 *
+	 * @author Alec Roelke
+	 */
+	public enum Relation
+	{
+		/**
+		 * The deck has at least the number of copies.
+		 */
+		AT_LEAST("at least"),
+		/**
+		 * The deck has exactly the number of copies.
+		 */
+		EXACTLY("exactly"),
+		/**
+		 * The deck has at most the number of copies.
+		 */
+		AT_MOST("at most"),
+		/**
+		 * The deck has no copies.  The number is ignored.
+		 */
+		NONE("none of");
+
+		/**
+		 * String representation of this Relation.
+		 */
+		private final String relation;
+
+		/**
+		 * Create a new Relation.
+		 *
+		 * @param r String representation of the new Relation
+		 */
+		private Relation(String r)
+		{
+			relation = r;
+		}
+
+		/**
+		 * @param count Number of copies in a deck
+		 * @param n Number of copies wanted
+		 * @return <code>true</code> if the number of copies in the deck satisfies this
+		 * Relation, and <code>false</code> otherwise.
+		 */
+		public boolean test(int count, int n)
+		{
+			switch (this)
+			{
+			case AT_LEAST:
+				return count >= n;
+			case EXACTLY:
+				return count == n;
+			case AT_MOST:
+				return count <= n;
+			case NONE:
+				return count == 0;
+			default:
+				throw new IllegalStateException("Unknown relation " + name());
+			}
+		}
+
+		@Override
+		public String toString()
+		{
+			return relation;
+		}
+	}
+
+	/**
+	 * This class represents a single condition on the cards in a deck.
+	 *
+	 * @author Alec Roelke
+	 */
+	public static class Clause
+	{
+		/**
+		 * How the number of copies in a deck should compare with {@link #count}.
+		 */
+		public final Relation relation;
+		/**
+		 * Number of copies to compare with.
+		 */
+		public final int count;
+		/**
+		 * Name of the category to count cards in, or <code>null</code> to count cards
+		 * in the whole deck.
+		 */
+		public final String category;
+		/**
+		 * Filter cards have to pass through to be counted.
+		 */
+		private final Filter filter;
+
+		/**
+		 * Create a new Clause.
+		 *
+		 * @param r Relation to compare with
+		 * @param n Number of copies to compare with
+		 * @param c Name of the category to count cards in, or <code>null</code> or an empty
+		 * String for the whole deck
+		 * @param f Filter cards have to pass through to be counted, which is copied
+		 * @throws IllegalArgumentException If the number of copies is negative
+		 */
+		public Clause(Relation r, int n, String c, Filter f)
+		{
+			if (n < 0)
+				throw new IllegalArgumentException("negative number of copies " + n);
+			relation = r;
+			count = n;
+			category = c == null || c.isEmpty() ? null : c;
+			filter = f.copy();
+		}
+
+		/**
+		 * @return A copy of the Filter cards have to pass through to be counted.
+		 */
+		public Filter filter()
+		{
+			return filter.copy();
+		}
+
+		/**
+		 * @return A String describing this Clause for people to read.
+		 */
+		public String describe()
+		{
+			return relation + (relation == Relation.NONE ? "" : " " + count) + " matching card" + (relation != Relation.NONE && count == 1 ? "" : "s") + (category == null ? "" : " in " + category);
+		}
+
+		/**
+		 * @return The String representation of this Clause as a line of a query.
+		 */
+		@Override
+		public String toString()
+		{
+			StringBuilder str = new StringBuilder();
+			str.append(relation.name()).append(' ').append(count).append(' ');
+			str.append(Filter.BEGIN_GROUP).append(category == null ? "" : category).append(Filter.END_GROUP).append(' ');
+			return filter.write(str).toString();
+		}
+	}
+
+	/**
+	 * This class represents a deck that matched a query.
+	 *
+	 * @author Alec Roelke
+	 */
+	public static class Result
+	{
+		/**
+		 * Deck file that matched.
+		 */
+		public final File file;
+		/**
+		 * Total number of cards in the deck.
+		 */
+		public final int total;
+		/**
+		 * Number of copies counted by each clause of the query.
+		 */
+		private final int[] counts;
+
+		/**
+		 * Create a new Result.
+		 *
+		 * @param f Deck file that matched
+		 * @param t Total number of cards in the deck
+		 * @param c Number of copies counted by each clause
+		 */
+		private Result(File f, int t, int[] c)
+		{
+			file = f;
+			total = t;
+			counts = c;
+		}
+
+		/**
+		 * @param clause Index of the clause to look at
+		 * @return The number of copies counted by the clause.
+		 */
+		public int count(int clause)
+		{
+			return counts[clause];
+		}
+	}
+
+	/**
+	 * Parse a query from its String representation.
+	 *
+	 * @param s String to parse, with one clause per line
+	 * @return The parsed query.
+	 * @throws IllegalArgumentException If a line isn't a valid clause
+	 */
+	public static LibraryQuery parse(String s)
+	{
+		List<Clause> clauses = new ArrayList<Clause>();
+		for (String line: s.split("\n"))
+		{
+			line = line.trim();
+			if (line.isEmpty())
+				continue;
+			String[] parts = line.split("\\s+", 3);
+			if (parts.length < 3)
+				throw new IllegalArgumentException("Illegal query clause " + line);
+			int end = parts[2].charAt(0) == Filter.BEGIN_GROUP ? parts[2].indexOf(Filter.END_GROUP) : -1;
+			if (end < 0)
+				throw new IllegalArgumentException("Illegal query clause " + line);
+			FilterGroup filter = new FilterGroup();
+			filter.parse(parts[2].substring(end + 1).trim());
+			clauses.add(new Clause(Relation.valueOf(parts[0]), Integer.parseInt(parts[1]), parts[2].substring(1, end), filter));
+		}
+		return new LibraryQuery(clauses);
+	}
+
+	/**
+	 * Clauses that must all be true for a deck to match.
+	 */
+	private List<Clause> clauses;
+
+	/**
+	 * Create a new LibraryQuery.
+	 *
+	 * @param c Clauses that must all be true for a deck to match
+	 */
+	public LibraryQuery(List<Clause> c)
+	{
+		clauses = new ArrayList<Clause>(c);
+	}
+
+	/**
+	 * @return The clauses of this LibraryQuery.
+	 */
+	public List<Clause> clauses()
+	{
+		return Collections.unmodifiableList(clauses);
+	}
+
+	/**
+	 * Test a deck in a library against this LibraryQuery.  The cards in the deck come
+	 * from the library's index, and the deck file is only read if a clause needs the
+	 * deck's categories.  A category the deck doesn't have counts as containing no
+	 * cards, so it satisfies clauses like "none of" or "at most."
+	 *
+	 * @param file Deck file to test
+	 * @param library Library containing the deck
+	 * @param inventory Inventory containing the cards in the deck
+	 * @param includes Predicates for the filters of the clauses
+	 * @return A Result for the deck if it matches, or <code>null</code> if it doesn't.
+	 */
+	private Result test(File file, DeckLibrary library, Inventory inventory, List<Predicate<Card>> includes)
+	{
+		Map<String, Integer> cards = library.cards(file);
+		List<CategorySpec> categories = null;
+		int total = cards.values().stream().mapToInt(Integer::intValue).sum();
+		int[] counts = new int[clauses.size()];
+		for (int i = 0; i < clauses.size(); i++)
+		{
+			Clause clause = clauses[i];
+			Predicate<Card> counted = includes[i];
+			if (clause.category != null)
+			{
+				try
+				{
+					if (categories == null)
+						categories = DeckFile.open(file).categories(inventory);
+				}
+				catch (IOException | IllegalArgumentException | IllegalStateException e)
+				{
+					return null;
+				}
+				CategorySpec spec = categories.stream().filter((c) -> c.getName().equals(clause.category)).findAny().orElse(null);
+				// Categories are only tested once per deck, so caching them would just fill the
+				// shared cache with specs that are never used again
+				if (spec == null)
+					counted = (c) -> false;
+				else
+					counted = counted.and(spec::includes);
+			}
+			for (Map.Entry<String, Integer> card: cards.entrySet())
+			{
+				Card c = inventory[card.getKey()];
+				if (c != null && counted.test(c))
+					counts[i] += card.getValue();
+			}
+			if (!clause.relation.test(counts[i], clause.count))
+				return null;
+		}
+		return new Result(file, total, counts);
+	}
+
+	/**
+	 * Find the decks in a library that match this LibraryQuery.  Decks are tested in
+	 * parallel, and each match is given to a consumer as soon as it is found, so the
+	 * consumer must be able to handle being called from several threads at once.
+	 * Results of the clauses' filters are looked up in the shared {@link FilterCache},
+	 * but categories are tested directly.  If the current thread is interrupted, the
+	 * search stops.
+	 *
+	 * @param library Library to search
+	 * @param inventory Inventory containing the cards in the decks
+	 * @param results Consumer to give matches to
+	 * @throws CancellationException If the current thread is interrupted while searching
+	 */
+	public void run(DeckLibrary library, Inventory inventory, Consumer<Result> results) throws CancellationException
+	{
+		Thread caller = Thread.currentThread();
+		List<Predicate<Card>> includes = clauses.stream().map((c) -> FilterCache.cached(c.filter)).collect(Collectors.toList());
+		library.decks().parallelStream().forEach((f) -> {
+			if (caller.isInterrupted())
+				throw new CancellationException("Search was interrupted");
+			Result result = test(f, library, inventory, includes);
+			if (result != null)
+				results.accept(result);
+		});
+	}
+
+	/**
+	 * @return The String representation of this LibraryQuery, with one clause per line.
+	 */
+	@Override
+	public String toString()
+	{
+		return clauses.stream().map(Clause::toString).collect(Collectors.joining("\n"));
+	}
+}
@@ -69,6 +69,28 @@ public abstract class Card
 		return tags.values().stream().flatMap(Set::stream).collect(Collectors.toSet());
 	}
 	
+	/**
+	 * Pattern matching combining marks such as accents.
+	 */
+	private static final Pattern MARKS = Pattern.compile("\\p{M}");
+	/**
+	 * Pattern matching white space, which types and supertypes can't contain.
+	 */
+	private static final Pattern WHITESPACE = Pattern.compile("\\s");
+	
+	/**
+	 * Convert a String to lower case and replace special characters with versions that
+	 * appear on a standard QWERTY keyboard.  This is the same conversion that is used
+	 * for normalized card names and text.
+	 * 
+	 * @param s String to normalize
+	 * @return The normalized version of the String.
+	 */
+	public static String normalize(String s)
+	{
+		return MARKS.matcher(Normalizer.normalize(s.toLowerCase(), Normalizer.Form.NFD)).replaceAll("").replace("\u00E6", "ae");
+	}
+	
 	/**
 	 * Expansion this Card belongs to.
 	 */
@@ -223,7 +245,7 @@ public abstract class Card
 	{
 		if (normalizedName == null)
 			normalizedName = Collections.unmodifiableList(name().stream()
-					.map((n) -> Normalizer.normalize(n.toLowerCase(), Normalizer.Form.NFD).replaceAll("\\p{M}", "").replace("\u00E6", "ae"))
+					.map(Card::normalize)
 					.collect(Collectors.toList()));
 		return normalizedName;
 	}
@@ -319,6 +341,24 @@ public abstract class Card
 	 */
 	public abstract ManaType.Tuple colorIdentity();
 	
+	/**
+	 * @return The bit mask of this Card's colors.
+	 * @see ManaType#mask()
+	 */
+	public int colorMask()
+	{
+		return colors().mask();
+	}
+	
+	/**
+	 * @return The bit mask of the colors in this Card's color identity.
+	 * @see ManaType#mask()
+	 */
+	public int colorIdentityMask()
+	{
+		return colorIdentity().mask();
+	}
+	
 	/**
 	 * @return The Expansion this Card belongs to.
 	 */
@@ -339,7 +379,7 @@ public abstract class Card
 	 */
 	public boolean supertypeContains(String s)
 	{
-		if (Pattern.compile("\\s").matcher(s).find())
+		if (WHITESPACE.matcher(s).find())
 			throw new IllegalArgumentException("Supertypes don't contain white space");
 		for (String supertype: supertypes())
 			if (s.equalsIgnoreCase(supertype))
@@ -359,7 +399,7 @@ public abstract class Card
 	 */
 	public boolean typeContains(String s)
 	{
-		if (Pattern.compile("\\s").matcher(s).find())
+		if (WHITESPACE.matcher(s).find())
 			throw new IllegalArgumentException("Types don't contain white space");
 		for (String type: types())
 			if (s.equalsIgnoreCase(type))
@@ -421,8 +461,7 @@ public abstract class Card
 			List<String> texts = new ArrayList<String>();
 			for (int i = 0; i < faces; i++)
 			{
-				String normal = Normalizer.normalize(oracleText()[i].toLowerCase(), Normalizer.Form.NFD);
-				normal = normal.replaceAll("\\p{M}", "").replace("\u00E6", "ae");
+				String normal = normalize(oracleText()[i]);
 				normal = normal.replace(legendName()[i], Card.THIS).replace(normalizedName()[i], Card.THIS);
 				texts.add(normal);
 			}
@@ -444,7 +483,7 @@ public abstract class Card
 	{
 		if (normalizedFlavor == null)
 			normalizedFlavor = Collections.unmodifiableList(flavorText().stream()
-					.map((f) -> Normalizer.normalize(f.toLowerCase(), Normalizer.Form.NFD).replaceAll("\\p{M}", "").replace("\u00E6", "ae"))
+					.map(Card::normalize)
 					.collect(Collectors.toList()));
 		return normalizedFlavor;
 	}
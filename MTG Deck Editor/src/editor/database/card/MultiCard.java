@@ -205,10 +205,10 @@ public abstract class MultiCard extends Card
 	{
 		if (colors == null)
 		{
-			Set<ManaType> cols = new HashSet<ManaType>();
+			int mask = 0;
 			for (Card face: faces)
-				cols.addAll(face.colors());
-			colors = new ManaType.Tuple(cols);
+				mask |= face.colorMask();
+			colors = ManaType.Tuple.fromMask(mask);
 		}
 		return colors;
 	}
@@ -233,10 +233,10 @@ public abstract class MultiCard extends Card
 	{
 		if (colorIdentity == null)
 		{
-			Set<ManaType> colors = new HashSet<ManaType>();
+			int mask = 0;
 			for (Card face: faces)
-				colors.addAll(face.colorIdentity());
-			colorIdentity = new ManaType.Tuple(colors);
+				mask |= face.colorIdentityMask();
+			colorIdentity = ManaType.Tuple.fromMask(mask);
 		}
 		return colorIdentity;
 	}
@@ -34,6 +34,22 @@ public enum ManaType
 		return new ManaType[] {WHITE, BLUE, BLACK, RED, GREEN};
 	}
 	
+	/**
+	 * Get the bit mask of a collection of ManaTypes, which has the bit of
+	 * each ManaType in the collection set.
+	 * 
+	 * @param types ManaTypes to get the mask of
+	 * @return The bit mask of the given ManaTypes.
+	 * @see ManaType#mask()
+	 */
+	public static int mask(Collection<ManaType> types)
+	{
+		int mask = 0;
+		for (ManaType type: types)
+			mask |= type.mask();
+		return mask;
+	}
+	
 	/**
 	 * Get a ManaType from a String.  Acceptable values are "white," "w," "blue,"
 	 * "u," "black," "b," "red," "r," "green," or "g," case insensitive.
@@ -92,6 +108,67 @@ public enum ManaType
 	@SuppressWarnings("serial")
 	public static class Tuple extends UnmodifiableList<ManaType> implements Comparable<Tuple>
 	{
+		/**
+		 * Shared tuples for each possible bit mask of ManaTypes.
+		 */
+		private static final Tuple[] TUPLES;
+		/**
+		 * Position of each possible bit mask of ManaTypes in the ordering of Tuples.
+		 */
+		private static final int[] RANKS;
+		static
+		{
+			TUPLES = new Tuple[1 << ManaType.values().length];
+			List<Tuple> ordered = new ArrayList<Tuple>();
+			for (int mask = 0; mask < TUPLES.length; mask++)
+			{
+				List<ManaType> types = new ArrayList<ManaType>();
+				for (ManaType type: ManaType.values())
+					if ((mask & type.mask()) != 0)
+						types.add(type);
+				ordered.add(TUPLES[mask] = new Tuple(types));
+			}
+			Collections.sort(ordered, Tuple::compare);
+			RANKS = new int[TUPLES.length];
+			for (int i = 0; i < ordered.size(); i++)
+				RANKS[ordered[i].mask] = i;
+		}
+		
+		/**
+		 * Get the Tuple containing the ManaTypes in a bit mask.  This is faster than
+		 * creating a new Tuple, as the result is shared and doesn't have to be sorted.
+		 * 
+		 * @param mask Bit mask of the ManaTypes to get the Tuple of
+		 * @return The Tuple containing the ManaTypes whose bits are set in the mask.
+		 * @see ManaType#mask()
+		 */
+		public static Tuple fromMask(int mask)
+		{
+			return TUPLES[mask];
+		}
+		
+		/**
+		 * Compare two Tuples by size, and then by their colors in order.
+		 * 
+		 * @param a First Tuple to compare
+		 * @param b Second Tuple to compare
+		 * @return A negative number if the first Tuple comes before the second, 0
+		 * if they are the same, and a positive number otherwise.
+		 */
+		private static int compare(Tuple a, Tuple b)
+		{
+			int diff = a.size() - b.size();
+			if (diff == 0)
+				for (int i = 0; i < a.size(); i++)
+					diff += a[i].compareTo(b[i])*Math.pow(10, a.size() - i);
+			return diff;
+		}
+		
+		/**
+		 * Bit mask of the ManaTypes in this Tuple.
+		 */
+		private final int mask;
+		
 		/**
 		 * Helper method for cleaning and sorting a collection of colors before calling the
 		 * super constructor on it.
@@ -148,6 +225,7 @@ public enum ManaType
 		public Tuple(Collection<ManaType> cols)
 		{
 			super(sorted(cols));
+			mask = ManaType.mask(this);
 		}
 		
 		/**
@@ -169,11 +247,16 @@ public enum ManaType
 		@Override
 		public int compareTo(Tuple other)
 		{
-			int diff = size() - other.size();
-			if (diff == 0)
-				for (int i = 0; i < size(); i++)
-					diff += this[i].compareTo(other[i])*Math.pow(10, size() - i);
-			return diff;
+			return RANKS[mask] - RANKS[other.mask];
+		}
+		
+		/**
+		 * @return The bit mask of the ManaTypes in this Tuple.
+		 * @see ManaType#mask()
+		 */
+		public int mask()
+		{
+			return mask;
 		}
 	}
 	
@@ -213,6 +296,15 @@ public enum ManaType
 		return shorthand;
 	}
 	
+	/**
+	 * @return A bit mask with only this ManaType's bit set, which can be combined
+	 * with those of other ManaTypes to represent a set of ManaTypes.
+	 */
+	public int mask()
+	{
+		return 1 << ordinal();
+	}
+	
 	/**
 	 * @return A String representation of this ManaType (its name).
 	 */
@@ -62,6 +62,56 @@ public abstract class Filter implements Predicate<Card>
 	 */
 	public abstract Filter copy();
 
+	/**
+	 * Determine whether or not this Filter is a refinement of another one, meaning
+	 * every Card that passes through this Filter is guaranteed to also pass through
+	 * the other one.  The check is conservative, so a result of <code>false</code>
+	 * only means that the refinement couldn't be proven.
+	 *
+	 * @param other Filter to compare with
+	 * @return <code>true</code> if this Filter is known to only let through Cards
+	 * that the other Filter also lets through, and <code>false</code> otherwise.
+	 */
+	public boolean refines(Filter other)
+	{
+		if (equals(other))
+			return true;
+		else if (other instanceof FilterGroup)
+		{
+			FilterGroup group = (FilterGroup)other;
+			switch (group.mode)
+			{
+			case AND:
+				for (Filter child: group)
+					if (!refines(child))
+						return false;
+				return true;
+			case OR:
+				for (Filter child: group)
+					if (refines(child))
+						return true;
+				return false;
+			default:
+				return false;
+			}
+		}
+		else
+			return other.equals(FilterFactory.createFilter(FilterFactory.ALL));
+	}
+
+	/**
+	 * Append the String representation of this Filter, including beginning and
+	 * ending markers, to a StringBuilder.  This allows a whole tree of Filters to
+	 * be written into the same buffer.
+	 *
+	 * @param str StringBuilder to append to
+	 * @return The StringBuilder.
+	 */
+	public StringBuilder write(StringBuilder str)
+	{
+		return str.append(BEGIN_GROUP).append(representation()).append(END_GROUP);
+	}
+
 	/**
 	 * @return A String representation of this Filter.
 	 * @see Filter#representation()
@@ -69,7 +119,16 @@ public abstract class Filter implements Predicate<Card>
 	@Override
 	public String toString()
 	{
-		return BEGIN_GROUP + representation() + END_GROUP;
+		return write(new StringBuilder()).toString();
+	}
+
+	/**
+	 * @return A String representation of this Filter that is the same for all
+	 * Filters that are equal to it, which is suitable for use as a key.
+	 */
+	public String canonicalString()
+	{
+		return toString();
 	}
 
 	/**
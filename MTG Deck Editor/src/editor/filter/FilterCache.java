@@ -0,0 +1,277 @@
+package editor.filter;
+
+import java.lang.ref.WeakReference;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import editor.database.card.Card;
+
+/**
+ * This class is a cache of the results of applying Filters to the cards in the
+ * inventory that is shared by everything that filters cards.  Results are keyed by
+ * the canonical String form of a Filter and the version of the inventory they were
+ * computed against.  Each result records which cards have been tested and which of
+ * them passed, so it can be filled in a few cards at a time by decks or all at once
+ * by the inventory.  Only a limited number of results are kept, and the least
+ * recently used ones are discarded first.  A discarded result that is still being used,
+ * such as by a category in an open deck, can still be found until nothing uses it any
+ * more, so filters that are only used briefly, like quick filters on the inventory,
+ * can't stop open decks from sharing results.
+ * <p>
+ * Because the cache is shared, a category that appears in several open decks, such
+ * as one made from a preset, tests each card only once no matter how many decks it
+ * is in.  If some cards change in a way that affects filters, such as when their tags
+ * change, only those cards need to be {@link #invalidate(Collection) tested again}.
+ * 
+ * @author Alec Roelke
+ */
+public abstract class FilterCache
+{
+	/**
+	 * Maximum number of recently used Filter results to keep even if nothing is using
+	 * them.
+	 */
+	public static final int CAPACITY = 64;
+	
+	/**
+	 * This class represents the result of applying a Filter to the inventory.  It
+	 * is filled in as cards are tested.
+	 * 
+	 * @author Alec Roelke
+	 */
+	private static class Result
+	{
+		/**
+		 * Cards that have been tested, indexed by their IDs in the cache.
+		 */
+		private final BitSet tested;
+		/**
+		 * Cards that have passed through the filter, indexed by their IDs in the cache.
+		 */
+		private final BitSet passed;
+		/**
+		 * Number of times results in this Result have been forgotten, so results of
+		 * tests that were running at the time aren't recorded.
+		 */
+		private int forgotten;
+		
+		/**
+		 * Create a new, empty Result.
+		 * 
+		 * @param n Number of cards in the inventory
+		 */
+		private Result(int n)
+		{
+			tested = new BitSet(n);
+			passed = new BitSet(n);
+			forgotten = 0;
+		}
+		
+		/**
+		 * Look up whether or not a card passes through a Filter, testing it if it
+		 * hasn't been tested yet.  The card is tested without holding this Result's
+		 * lock so threads testing different cards don't wait for each other; if two
+		 * threads test the same card at once, they both record the same result.
+		 * 
+		 * @param f Filter the result is for
+		 * @param c Card to test
+		 * @param id ID of the card in the cache
+		 * @return <code>true</code> if the card passes through the filter, and
+		 * <code>false</code> otherwise.
+		 */
+		private boolean test(Filter f, Card c, int id)
+		{
+			int generation;
+			synchronized (this)
+			{
+				if (tested.get(id))
+					return passed.get(id);
+				generation = forgotten;
+			}
+			boolean result = f.test(c);
+			synchronized (this)
+			{
+				if (generation == forgotten)
+				{
+					passed.set(id, result);
+					tested.set(id);
+				}
+			}
+			return result;
+		}
+		
+		/**
+		 * Forget whether or not a card passes through the Filter, so it will be
+		 * tested again the next time it is looked up.
+		 * 
+		 * @param id ID of the card in the cache
+		 */
+		private synchronized void forget(int id)
+		{
+			tested.clear(id);
+			passed.clear(id);
+			forgotten++;
+		}
+	}
+	
+	/**
+	 * Version of the inventory the cached results were computed against.
+	 */
+	private static volatile int version = 0;
+	/**
+	 * Number of times cached results have been discarded or invalidated.  Predicates
+	 * from {@link #cached(Filter)} should be looked up again when this changes.
+	 */
+	private static volatile int generation = 0;
+	/**
+	 * IDs of the cards in the inventory, which index into cached results.
+	 */
+	private static volatile Map<Card, Integer> ids = Collections.emptyMap();
+	/**
+	 * Recently used results, in order of least-recently-used to most.
+	 */
+	@SuppressWarnings("serial")
+	private static final Map<String, Result> results = new LinkedHashMap<String, Result>(16, 0.75f, true)
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Result> eldest)
+		{
+			return size() > CAPACITY;
+		}
+	};
+	/**
+	 * Every result that hasn't been discarded, including ones that are no longer recent
+	 * but are still held by Predicates from {@link #cached(Filter)}.
+	 */
+	private static final Map<String, WeakReference<Result>> live = new HashMap<String, WeakReference<Result>>();
+	
+	/**
+	 * Get a Predicate that is equivalent to a Filter, but looks up results in
+	 * the cache before testing cards and records them afterward.  Cards that are
+	 * not in the inventory are always tested directly.  The Filter should not be
+	 * modified while the returned Predicate is in use.
+	 * 
+	 * @param f Filter to look up
+	 * @return A Predicate that tests cards using the cached results of the Filter.
+	 */
+	public static Predicate<Card> cached(Filter f)
+	{
+		Map<Card, Integer> cardIDs;
+		Result result;
+		synchronized (FilterCache.class)
+		{
+			cardIDs = ids;
+			String key = version + ":" + f.canonicalString();
+			result = results[key];
+			if (result == null)
+			{
+				WeakReference<Result> ref = live[key];
+				result = ref == null ? null : ref.get();
+				if (result == null)
+				{
+					live.values().removeIf((r) -> r.get() == null);
+					result = new Result(ids.size());
+					live[key] = new WeakReference<Result>(result);
+				}
+				results[key] = result;
+			}
+		}
+		return (c) -> {
+			Integer id = cardIDs[c];
+			return id == null ? f.test(c) : result.test(f, c, id);
+		};
+	}
+	
+	/**
+	 * @param c Card to look up
+	 * @return The ID of the card in the inventory, which is between 0 and the number
+	 * of cards in the inventory, or -1 if the card is not in the inventory.
+	 */
+	public static int id(Card c)
+	{
+		Integer id = ids[c];
+		return id == null ? -1 : id;
+	}
+	
+	/**
+	 * Discard all cached results, such as when card tags change and they may no
+	 * longer be accurate.
+	 */
+	public static synchronized void invalidate()
+	{
+		results.clear();
+		live.clear();
+		generation++;
+	}
+	
+	/**
+	 * Discard the cached results for some cards, such as when their tags change.
+	 * Results for all other cards are kept.
+	 * 
+	 * @param cards Cards whose results should be discarded
+	 */
+	public static synchronized void invalidate(Collection<? extends Card> cards)
+	{
+		for (Card c: cards)
+		{
+			Integer id = ids[c];
+			if (id != null)
+			{
+				for (WeakReference<Result> ref: live.values())
+				{
+					Result result = ref.get();
+					if (result != null)
+						result.forget(id);
+				}
+			}
+		}
+		generation++;
+	}
+	
+	/**
+	 * @return The number of times cached results have been discarded or invalidated.
+	 * If it has changed since a Predicate was obtained from {@link #cached(Filter)},
+	 * the Predicate may give out-of-date results and should be obtained again.
+	 */
+	public static int generation()
+	{
+		return generation;
+	}
+	
+	/**
+	 * Set the cards in the inventory, which begins a new inventory version and
+	 * discards all cached results.
+	 * 
+	 * @param cards Cards in the new inventory
+	 */
+	public static synchronized void setCards(Collection<Card> cards)
+	{
+		Map<Card, Integer> cardIDs = new HashMap<Card, Integer>();
+		for (Card c: cards)
+			cardIDs.putIfAbsent(c, cardIDs.size());
+		ids = cardIDs;
+		version++;
+		generation++;
+		results.clear();
+		live.clear();
+	}
+	
+	/**
+	 * @return The version of the inventory the cached results are computed against.
+	 */
+	public static int version()
+	{
+		return version;
+	}
+	
+	/**
+	 * FilterCache cannot be instantiated and should not be extended.
+	 */
+	private FilterCache()
+	{}
+}
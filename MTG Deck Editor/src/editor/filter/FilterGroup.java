@@ -5,10 +5,9 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
-import java.util.StringJoiner;
 import java.util.function.BiPredicate;
 import java.util.function.Predicate;
-import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import editor.database.card.Card;
@@ -22,10 +21,40 @@ import editor.database.card.Card;
 public class FilterGroup extends Filter implements Iterable<Filter>
 {
 	/**
-	 * Pattern to match for parsing a String to determine a FilterGroup's
-	 * properties.
+	 * Find the index of the first character in a String at or after a position
+	 * that isn't whitespace.
+	 * 
+	 * @param s String to search
+	 * @param i Position to start at
+	 * @return The index of the first non-whitespace character, or the length of the
+	 * String if there is none.
 	 */
-	private static final Pattern GROUP_PATTERN = Pattern.compile("^\\s*" + Filter.BEGIN_GROUP + "\\s*(?:AND|OR)", Pattern.CASE_INSENSITIVE);
+	private static int skipWhitespace(String s, int i)
+	{
+		while (i < s.length() && Character.isWhitespace(s.charAt(i)))
+			i++;
+		return i;
+	}
+	
+	/**
+	 * Find the end of a mode or leaf code in a String.
+	 * 
+	 * @param s String to search
+	 * @param i Position of the start of the token
+	 * @return The index of the first character after the token, which is the first
+	 * whitespace, colon, or group marker.
+	 */
+	private static int tokenEnd(String s, int i)
+	{
+		while (i < s.length())
+		{
+			char c = s.charAt(i);
+			if (Character.isWhitespace(c) || c == ':' || c == BEGIN_GROUP || c == END_GROUP)
+				break;
+			i++;
+		}
+		return i;
+	}
 	
 	/**
 	 * Children of this FilterGroup.
@@ -94,65 +123,129 @@ public class FilterGroup extends Filter implements Iterable<Filter>
 	@Override
 	public String representation()
 	{
-		StringJoiner join = new StringJoiner(" ");
-		join.add(mode.name());
+		StringBuilder str = new StringBuilder(mode.name());
+		for (Filter filter: children)
+			filter.write(str.append(' '));
+		return str.toString();
+	}
+	
+	/**
+	 * Append the String representation of this FilterGroup and all of its
+	 * descendants to a StringBuilder without creating intermediate Strings
+	 * for child groups.
+	 * 
+	 * @param str StringBuilder to append to
+	 * @return The StringBuilder.
+	 * @see Filter#write(StringBuilder)
+	 */
+	@Override
+	public StringBuilder write(StringBuilder str)
+	{
+		str.append(BEGIN_GROUP).append(mode.name());
 		for (Filter filter: children)
-			join.add(filter.toString());
-		return join.toString();
+			filter.write(str.append(' '));
+		return str.append(END_GROUP);
+	}
+
+	/**
+	 * @return The String representation of this FilterGroup with the canonical
+	 * representations of its children in sorted order, since the order of children
+	 * doesn't affect which Cards pass through it.
+	 * @see Filter#canonicalString()
+	 */
+	@Override
+	public String canonicalString()
+	{
+		return BEGIN_GROUP + mode.name() + children.stream().map(Filter::canonicalString).sorted().collect(Collectors.joining(" ", " ", "")) + END_GROUP;
 	}
 
 	/**
 	 * Parse a String for a FilterGroup.  The String should consist of 
 	 * beginning and ending markers followed by the mode of the group,
 	 * followed by any number of Filters (that can also be groups) that
-	 * are each surrounded by beginning and ending markers.
+	 * are each surrounded by beginning and ending markers.  The String
+	 * is parsed in a single pass, with child groups parsed in place.
+	 * 
+	 * @param s String to parse
 	 */
 	@Override
 	public void parse(String s)
+	{
+		parse(s, 0);
+	}
+	
+	/**
+	 * Parse a FilterGroup out of a String starting at a position.
+	 * 
+	 * @param s String to parse
+	 * @param start Position of the group's beginning marker, or of whitespace
+	 * before it
+	 * @return The index just after the group's ending marker.
+	 */
+	private int parse(String s, int start)
 	{
 		children.clear();
-		String[] contents = s.substring(1, s.length() - 1).split("\\s+", 2);
-		mode = Mode.valueOf(contents[0]);
-		List<String> filterStrings = new ArrayList<String>();
-		int depth = 0;
-		StringBuilder str = new StringBuilder();
-		for (char c: contents[1].toCharArray())
+		int i = skipWhitespace(s, start);
+		if (i >= s.length() || s.charAt(i) != BEGIN_GROUP)
+			throw new IllegalArgumentException("Expected " + BEGIN_GROUP + " at position " + i + " in string \"" + s + "\"");
+		int modeStart = skipWhitespace(s, i + 1);
+		i = tokenEnd(s, modeStart);
+		mode = Mode.valueOf(s.substring(modeStart, i));
+		while (true)
 		{
-			switch (c)
+			i = skipWhitespace(s, i);
+			if (i >= s.length())
+				throw new IllegalArgumentException("Unclosed " + BEGIN_GROUP + END_GROUP + " detected in string \"" + s + "\"");
+			else if (s.charAt(i) == END_GROUP)
+				return i + 1;
+			else if (s.charAt(i) != BEGIN_GROUP)
+				i++;
+			else
 			{
-			case Filter.BEGIN_GROUP:
-				depth++;
-				if (depth == 1)
-					str = new StringBuilder();
-				break;
-			case Filter.END_GROUP:
-				if (depth == 1)
+				int codeStart = skipWhitespace(s, i + 1);
+				int codeEnd = tokenEnd(s, codeStart);
+				if (codeEnd < s.length() && s.charAt(codeEnd) != ':' && isMode(s.substring(codeStart, codeEnd)))
 				{
-					str.append(Filter.END_GROUP);
-					filterStrings.add(str.toString());
+					FilterGroup group = new FilterGroup();
+					i = group.parse(s, i);
+					addChild(group);
+				}
+				else
+				{
+					int depth = 0;
+					int end = i;
+					do
+					{
+						if (s.charAt(end) == BEGIN_GROUP)
+							depth++;
+						else if (s.charAt(end) == END_GROUP)
+							depth--;
+						end++;
+					} while (depth > 0 && end < s.length());
+					if (depth > 0)
+						throw new IllegalArgumentException("Unclosed " + BEGIN_GROUP + END_GROUP + " detected in string \"" + s + "\"");
+					Filter filter = FilterFactory.createFilter(s.substring(codeStart, codeEnd));
+					filter.parse(s.substring(i, end));
+					addChild(filter);
+					i = end;
 				}
-				depth--;
-				break;
-			default:
-				break;
 			}
-			if (depth > 0)
-				str.append(c);
-		}
-		if (depth != 0)
-			throw new IllegalArgumentException("Unclosed " + String.valueOf(Filter.BEGIN_GROUP) + String.valueOf(Filter.END_GROUP) + " detected in string \"" + contents + "\"");
-		for (String filterString: filterStrings)
-		{
-			Filter filter;
-			if (GROUP_PATTERN.matcher(filterString).find())
-				filter = new FilterGroup();
-			else
-				filter = FilterFactory.createFilter(filterString.substring(1, filterString.indexOf(':')));
-			filter.parse(filterString);
-			addChild(filter);
 		}
 	}
 	
+	/**
+	 * @param token String to check
+	 * @return <code>true</code> if the String is the name of a Mode, and
+	 * <code>false</code> otherwise.
+	 */
+	private static boolean isMode(String token)
+	{
+		for (Mode m: Mode.values())
+			if (m.name().equals(token))
+				return true;
+		return false;
+	}
+	
 	/**
 	 * @return A new FilterGroup that is a copy of this one, with copies of all of
 	 * its children.
@@ -167,6 +260,43 @@ public class FilterGroup extends Filter implements Iterable<Filter>
 		return filter;
 	}
 	
+	/**
+	 * @param other Filter to compare with
+	 * @return <code>true</code> if this FilterGroup is an AND group with a child that
+	 * refines the other Filter, an OR group whose children all refine the other Filter,
+	 * or if the other Filter's structure shows that it is refined by this one, and
+	 * <code>false</code> otherwise.
+	 * @see Filter#refines(Filter)
+	 */
+	@Override
+	public boolean refines(Filter other)
+	{
+		switch (mode)
+		{
+		case AND:
+			for (Filter child: children)
+				if (child.refines(other))
+					return true;
+			break;
+		case OR:
+			boolean all = true;
+			for (Filter child: children)
+			{
+				if (!child.refines(other))
+				{
+					all = false;
+					break;
+				}
+			}
+			if (all)
+				return true;
+			break;
+		default:
+			break;
+		}
+		return super.refines(other);
+	}
+	
 	/**
 	 * @param other Object to compare with
 	 * @return <code>true</code> if the other Object is a FilterGroup with exactly the
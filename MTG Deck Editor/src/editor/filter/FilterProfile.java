@@ -0,0 +1,317 @@
+package editor.filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import editor.database.card.Card;
+import editor.filter.leaf.FilterLeaf;
+
+/**
+ * This class evaluates a tree of Filters while recording, for each node in the
+ * tree, how many Cards it tested, how many of them passed, and how long the tests
+ * took.  Groups short-circuit the same way {@link FilterGroup.Mode} does, so children
+ * that are never reached by a normal evaluation are not counted here either.  The
+ * Filter being profiled should not be modified while it is being profiled.
+ * 
+ * @author Alec Roelke
+ */
+public class FilterProfile
+{
+	/**
+	 * Profile a Filter over a collection of Cards.
+	 * 
+	 * @param filter Filter to profile
+	 * @param cards Cards to test
+	 * @return A FilterProfile containing the results of testing each of the Cards.
+	 */
+	public static FilterProfile explain(Filter filter, Iterable<? extends Card> cards)
+	{
+		FilterProfile profile = new FilterProfile(filter);
+		profile.profile(cards);
+		return profile;
+	}
+	
+	/**
+	 * This class contains the statistics for a single node of a Filter tree.
+	 * 
+	 * @author Alec Roelke
+	 */
+	public static class Node
+	{
+		/**
+		 * Filter this Node records statistics for.
+		 */
+		private final Filter filter;
+		/**
+		 * Depth of this Node in the tree, where the root has depth 0.
+		 */
+		private final int depth;
+		/**
+		 * Nodes for the children of the Filter, if it is a group.
+		 */
+		private final List<Node> children;
+		/**
+		 * Number of Cards this Node has tested.
+		 */
+		private long evaluations;
+		/**
+		 * Number of Cards that passed this Node.
+		 */
+		private long passes;
+		/**
+		 * Total time spent testing Cards with this Node, including its children.
+		 */
+		private long nanos;
+		
+		/**
+		 * Create a new Node and Nodes for all of its Filter's children.
+		 * 
+		 * @param f Filter to record statistics for
+		 * @param d Depth of the new Node
+		 */
+		private Node(Filter f, int d)
+		{
+			filter = f;
+			depth = d;
+			children = new ArrayList<Node>();
+			if (f instanceof FilterGroup)
+				for (Filter child: (FilterGroup)f)
+					children.add(new Node(child, d + 1));
+		}
+		
+		/**
+		 * Test a Card with this Node's Filter, recording statistics along the way.
+		 * 
+		 * @param c Card to test
+		 * @return <code>true</code> if the Card passes the Filter, and <code>false</code>
+		 * otherwise.
+		 */
+		private boolean test(Card c)
+		{
+			long start = System.nanoTime();
+			boolean passed;
+			if (filter instanceof FilterGroup)
+			{
+				switch (((FilterGroup)filter).mode)
+				{
+				case AND:
+					passed = true;
+					for (Node child: children)
+						if (!child.test(c))
+						{
+							passed = false;
+							break;
+						}
+					break;
+				case OR:
+					passed = false;
+					for (Node child: children)
+						if (child.test(c))
+						{
+							passed = true;
+							break;
+						}
+					break;
+				case NOR:
+					passed = true;
+					for (Node child: children)
+						if (child.test(c))
+						{
+							passed = false;
+							break;
+						}
+					break;
+				default:
+					throw new IllegalStateException("Unknown filter group mode " + ((FilterGroup)filter).mode);
+				}
+			}
+			else
+				passed = filter.test(c);
+			nanos += System.nanoTime() - start;
+			evaluations++;
+			if (passed)
+				passes++;
+			return passed;
+		}
+		
+		/**
+		 * Clear the statistics of this Node and its children.
+		 */
+		private void reset()
+		{
+			evaluations = 0;
+			passes = 0;
+			nanos = 0;
+			for (Node child: children)
+				child.reset();
+		}
+		
+		/**
+		 * @return The Filter this Node records statistics for.
+		 */
+		public Filter filter()
+		{
+			return filter;
+		}
+		
+		/**
+		 * @return The depth of this Node in its tree, where the root's depth is 0.
+		 */
+		public int depth()
+		{
+			return depth;
+		}
+		
+		/**
+		 * @return The Nodes of this Node's Filter's children, which is empty if
+		 * the Filter is not a group.
+		 */
+		public List<Node> children()
+		{
+			return Collections.unmodifiableList(children);
+		}
+		
+		/**
+		 * @return The number of Cards this Node's Filter has tested.
+		 */
+		public long evaluations()
+		{
+			return evaluations;
+		}
+		
+		/**
+		 * @return The number of Cards that have passed this Node's Filter.
+		 */
+		public long passes()
+		{
+			return passes;
+		}
+		
+		/**
+		 * @return The fraction of tested Cards that passed this Node's Filter, or 0
+		 * if it hasn't tested any.
+		 */
+		public double passRate()
+		{
+			return evaluations == 0 ? 0.0 : (double)passes/evaluations;
+		}
+		
+		/**
+		 * @return The total time, in nanoseconds, spent testing Cards with this
+		 * Node's Filter, including the time spent on its children.
+		 */
+		public long nanos()
+		{
+			return nanos;
+		}
+		
+		/**
+		 * @return The time, in nanoseconds, spent testing Cards with this Node's
+		 * Filter, not counting the time spent on its children.
+		 */
+		public long selfNanos()
+		{
+			long self = nanos;
+			for (Node child: children)
+				self -= child.nanos;
+			return Math.max(0, self);
+		}
+		
+		/**
+		 * @return A short description of this Node's Filter, which is its mode if it
+		 * is a group, or its type name and contents otherwise.
+		 */
+		public String description()
+		{
+			if (filter instanceof FilterGroup)
+				return ((FilterGroup)filter).mode.toString();
+			else if (filter instanceof FilterLeaf)
+			{
+				FilterLeaf<?> leaf = (FilterLeaf<?>)filter;
+				String content = leaf.content();
+				return FilterFactory.FILTER_TYPES[leaf.type] + (content.isEmpty() ? "" : ": " + content);
+			}
+			else
+				return filter.representation();
+		}
+	}
+	
+	/**
+	 * Root Node of the profiled tree.
+	 */
+	private final Node root;
+	
+	/**
+	 * Create a new FilterProfile with no statistics for a Filter.
+	 * 
+	 * @param filter Filter to profile
+	 */
+	public FilterProfile(Filter filter)
+	{
+		root = new Node(filter, 0);
+	}
+	
+	/**
+	 * Test a Card with the profiled Filter, recording statistics for each node
+	 * that is evaluated.
+	 * 
+	 * @param c Card to test
+	 * @return <code>true</code> if the Card passes the Filter, and <code>false</code>
+	 * otherwise.
+	 */
+	public boolean test(Card c)
+	{
+		return root.test(c);
+	}
+	
+	/**
+	 * Test each of a collection of Cards with the profiled Filter.
+	 * 
+	 * @param cards Cards to test
+	 * @return The number of Cards that passed the Filter.
+	 */
+	public int profile(Iterable<? extends Card> cards)
+	{
+		int passed = 0;
+		for (Card c: cards)
+			if (root.test(c))
+				passed++;
+		return passed;
+	}
+	
+	/**
+	 * Clear all of the statistics that have been recorded.
+	 */
+	public void reset()
+	{
+		root.reset();
+	}
+	
+	/**
+	 * @return The Node at the root of the profiled tree.
+	 */
+	public Node root()
+	{
+		return root;
+	}
+	
+	/**
+	 * @return A list of all of the Nodes in the profiled tree in depth-first order,
+	 * with each group appearing before its children.
+	 */
+	public List<Node> nodes()
+	{
+		List<Node> nodes = new ArrayList<Node>();
+		List<Node> stack = new ArrayList<Node>();
+		stack.add(root);
+		while (!stack.isEmpty())
+		{
+			Node node = stack.remove(stack.size() - 1);
+			nodes.add(node);
+			for (int i = node.children.size() - 1; i >= 0; i--)
+				stack.add(node.children[i]);
+		}
+		return nodes;
+	}
+}
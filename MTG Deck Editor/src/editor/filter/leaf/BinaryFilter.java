@@ -67,6 +67,17 @@ public class BinaryFilter extends FilterLeaf<Void>
 		return FilterFactory.createFilter(type);
 	}
 	
+	/**
+	 * @param other Filter to compare with
+	 * @return <code>true</code> if this BinaryFilter lets no Cards through or if
+	 * the other Filter lets all Cards through, and <code>false</code> otherwise.
+	 */
+	@Override
+	public boolean refines(Filter other)
+	{
+		return !all || super.refines(other);
+	}
+	
 	/**
 	 * @param other Object to compare with
 	 * @return <code>true</code> if the other Object is a BinaryFilter and
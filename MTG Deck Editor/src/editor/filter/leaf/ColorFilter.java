@@ -55,8 +55,9 @@ public class ColorFilter extends FilterLeaf<ManaType.Tuple>
 	@Override
 	public boolean test(Card c)
 	{
-		return contain.test(function.apply(c), colors)
-				&& (!multicolored || function.apply(c).size() > 1);
+		int mask = function.apply(c).mask();
+		return contain.test(mask, ManaType.mask(colors))
+				&& (!multicolored || Integer.bitCount(mask) > 1);
 	}
 
 	/**
@@ -45,12 +45,19 @@ public class NumberFilter extends FilterLeaf<Collection<Double>>
 	/**
 	 * @param c Card to test
 	 * @return <code>true</code> if the numeric characteristic of the given Card
-	 * compares correctly with this NumberFilter's operand.
+	 * compares correctly with this NumberFilter's operand.  Values are read from the
+	 * {@link NumberIndex} if the card is in it.
 	 */
 	@Override
 	public boolean test(Card c)
 	{
-		return function.apply(c).stream().anyMatch((v) -> !v.isNaN() && operation.test(v, operand));
+		double[] values = NumberIndex.values(type, c);
+		if (values == null)
+			return function.apply(c).stream().anyMatch((v) -> !v.isNaN() && operation.test(v.doubleValue(), operand));
+		for (double v: values)
+			if (!Double.isNaN(v) && operation.test(v, operand))
+				return true;
+		return false;
 	}
 
 	/**
@@ -0,0 +1,345 @@
+package editor.filter.leaf;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import editor.database.card.Card;
+import editor.filter.Filter;
+import editor.filter.FilterCache;
+import editor.filter.FilterFactory;
+import editor.filter.FilterGroup;
+import editor.util.Comparison;
+
+/**
+ * This class is an index of the numeric characteristics of the cards in the
+ * inventory.  For each characteristic, it stores the values of each card's faces
+ * in primitive arrays indexed by the card's ID in the {@link FilterCache}, and
+ * all of the values in sorted order along with the IDs of their cards.  This lets
+ * {@link NumberFilter}s test cards without computing their values, and lets
+ * comparisons be answered for the whole inventory using binary search.
+ * 
+ * @author Alec Roelke
+ */
+public abstract class NumberIndex
+{
+	/**
+	 * Codes of the characteristics that are indexed.
+	 */
+	private static final String[] INDEXED = {FilterFactory.CMC, FilterFactory.POWER, FilterFactory.TOUGHNESS, FilterFactory.LOYALTY, FilterFactory.CARD_NUMBER};
+	
+	/**
+	 * This class represents the index of one numeric characteristic.
+	 * 
+	 * @author Alec Roelke
+	 */
+	private static class Column
+	{
+		/**
+		 * Values of each face of each card, indexed by card ID.  Cards whose values
+		 * couldn't be computed have no entry.
+		 */
+		private final double[][] values;
+		/**
+		 * All values that are numbers in ascending order.
+		 */
+		private final double[] sorted;
+		/**
+		 * IDs of the cards the sorted values belong to.
+		 */
+		private final int[] order;
+		/**
+		 * Whether or not the values of all cards could be computed.
+		 */
+		private final boolean complete;
+		
+		/**
+		 * Create a new Column.
+		 * 
+		 * @param v Values of each face of each card
+		 * @param c Whether or not all values were computed
+		 */
+		private Column(double[][] v, boolean c)
+		{
+			values = v;
+			complete = c;
+			
+			int count = 0;
+			for (double[] faces: values)
+				if (faces != null)
+					for (double value: faces)
+						if (!Double.isNaN(value))
+							count++;
+			Integer[] positions = new Integer[count];
+			double[] unsorted = new double[count];
+			int[] ids = new int[count];
+			int i = 0;
+			for (int id = 0; id < values.length; id++)
+			{
+				if (values[id] != null)
+				{
+					for (double value: values[id])
+					{
+						if (!Double.isNaN(value))
+						{
+							positions[i] = i;
+							unsorted[i] = value;
+							ids[i] = id;
+							i++;
+						}
+					}
+				}
+			}
+			Arrays.sort(positions, (a, b) -> Double.compare(unsorted[a], unsorted[b]));
+			sorted = new double[count];
+			order = new int[count];
+			for (i = 0; i < count; i++)
+			{
+				sorted[i] = unsorted[positions[i]];
+				order[i] = ids[positions[i]];
+			}
+		}
+		
+		/**
+		 * Find the first value that is greater than or equal to (or just greater than)
+		 * a number.
+		 * 
+		 * @param x Number to search for
+		 * @param inclusive Whether to find the first value that is greater than or equal
+		 * to the number rather than greater than it
+		 * @return The index of the first value that is greater than or equal to the number
+		 * if inclusive or greater than it if not, or the number of values if there is none.
+		 */
+		private int bound(double x, boolean inclusive)
+		{
+			int low = 0;
+			int high = sorted.length;
+			while (low < high)
+			{
+				int mid = (low + high) >>> 1;
+				if (sorted[mid] < x || (!inclusive && sorted[mid] == x))
+					low = mid + 1;
+				else
+					high = mid;
+			}
+			return low;
+		}
+		
+		/**
+		 * Set the IDs of the cards whose values are in a range.
+		 * 
+		 * @param ids BitSet to set the IDs in
+		 * @param start Start of the range of sorted values, inclusive
+		 * @param end End of the range of sorted values, exclusive
+		 */
+		private void set(BitSet ids, int start, int end)
+		{
+			for (int i = start; i < end; i++)
+				ids.set(order[i]);
+		}
+		
+		/**
+		 * @param operation Comparison to perform
+		 * @param operand Number to compare with
+		 * @return A BitSet containing the IDs of the cards with a value that compares
+		 * correctly with the operand.
+		 */
+		private BitSet matching(Comparison operation, double operand)
+		{
+			BitSet ids = new BitSet(values.length);
+			int lower = bound(operand, true);
+			int upper = bound(operand, false);
+			switch (operation)
+			{
+			case EQ:
+				set(ids, lower, upper);
+				break;
+			case NE:
+				set(ids, 0, lower);
+				set(ids, upper, sorted.length);
+				break;
+			case GE:
+				set(ids, lower, sorted.length);
+				break;
+			case GT:
+				set(ids, upper, sorted.length);
+				break;
+			case LE:
+				set(ids, 0, upper);
+				break;
+			case LT:
+				set(ids, 0, lower);
+				break;
+			}
+			return ids;
+		}
+	}
+	
+	/**
+	 * This class represents the index of all numeric characteristics for one
+	 * version of the inventory.
+	 * 
+	 * @author Alec Roelke
+	 */
+	private static class Index
+	{
+		/**
+		 * Version of the inventory that was indexed.
+		 */
+		private final int version;
+		/**
+		 * Columns of the index, by characteristic code.
+		 */
+		private final Map<String, Column> columns;
+		
+		/**
+		 * Create a new Index.
+		 * 
+		 * @param v Version of the inventory
+		 * @param c Columns of the index
+		 */
+		private Index(int v, Map<String, Column> c)
+		{
+			version = v;
+			columns = c;
+		}
+	}
+	
+	/**
+	 * Index of the current inventory.
+	 */
+	private static volatile Index index = null;
+	
+	/**
+	 * Index the numeric characteristics of the cards in the inventory.  This should
+	 * be called after the cards are given to the {@link FilterCache}, and the index
+	 * is only used until they change again.
+	 * 
+	 * @param cards Cards in the inventory
+	 */
+	public static void build(Collection<Card> cards)
+	{
+		int version = FilterCache.version();
+		Map<String, Column> columns = new HashMap<String, Column>();
+		for (String type: INDEXED)
+		{
+			NumberFilter filter = (NumberFilter)FilterFactory.createFilter(type);
+			double[][] values = new double[cards.size()][];
+			boolean complete = true;
+			for (Card c: cards)
+			{
+				int id = FilterCache.id(c);
+				if (id >= 0 && id < values.length && values[id] == null)
+				{
+					try
+					{
+						values[id] = filter.function.apply(c).stream().mapToDouble(Double::doubleValue).toArray();
+					}
+					catch (RuntimeException e)
+					{
+						complete = false;
+					}
+				}
+			}
+			columns[type] = new Column(values, complete);
+		}
+		index = new Index(version, columns);
+	}
+	
+	/**
+	 * @param type Code of the characteristic to look up
+	 * @return The index of the characteristic, or <code>null</code> if it isn't
+	 * indexed or the index is out of date.
+	 */
+	private static Column column(String type)
+	{
+		Index current = index;
+		if (current == null || current.version != FilterCache.version())
+			return null;
+		else
+			return current.columns[type];
+	}
+	
+	/**
+	 * Get the values of a numeric characteristic of a card.
+	 * 
+	 * @param type Code of the characteristic
+	 * @param c Card to look up
+	 * @return An array containing the value of each of the card's faces, which should
+	 * not be modified, or <code>null</code> if the card or characteristic isn't indexed.
+	 */
+	public static double[] values(String type, Card c)
+	{
+		Column column = column(type);
+		if (column == null)
+			return null;
+		int id = FilterCache.id(c);
+		return id >= 0 && id < column.values.length ? column.values[id] : null;
+	}
+	
+	/**
+	 * Find the cards in the inventory that might pass through a filter using the
+	 * index.  NumberFilters are answered exactly, AND groups narrow the candidates
+	 * down using any of their children that can be answered, and OR groups can be
+	 * answered if all of their children can.
+	 * 
+	 * @param f Filter to find candidates for
+	 * @return A BitSet containing the IDs of the cards that might pass through the filter,
+	 * which includes all of the cards that do, or <code>null</code> if the index can't
+	 * narrow them down.
+	 */
+	public static BitSet candidates(Filter f)
+	{
+		if (f instanceof VariableNumberFilter && ((VariableNumberFilter)f).varies)
+			return null;
+		else if (f instanceof NumberFilter)
+		{
+			NumberFilter filter = (NumberFilter)f;
+			Column column = column(filter.type);
+			return column == null || !column.complete ? null : column.matching(filter.operation, filter.operand);
+		}
+		else if (f instanceof FilterGroup)
+		{
+			FilterGroup group = (FilterGroup)f;
+			BitSet candidates = null;
+			switch (group.mode)
+			{
+			case AND:
+				for (Filter child: group)
+				{
+					BitSet childCandidates = candidates(child);
+					if (childCandidates != null)
+					{
+						if (candidates == null)
+							candidates = childCandidates;
+						else
+							candidates.and(childCandidates);
+					}
+				}
+				return candidates;
+			case OR:
+				candidates = new BitSet();
+				for (Filter child: group)
+				{
+					BitSet childCandidates = candidates(child);
+					if (childCandidates == null)
+						return null;
+					candidates.or(childCandidates);
+				}
+				return candidates;
+			default:
+				return null;
+			}
+		}
+		else
+			return null;
+	}
+	
+	/**
+	 * NumberIndex cannot be instantiated and should not be extended.
+	 */
+	private NumberIndex()
+	{}
+}
@@ -47,6 +47,22 @@ public class TextFilter extends FilterLeaf<Collection<String>>
 		}
 	}
 	
+	/**
+	 * Get the literal text out of a regular expression created using
+	 * {@link Pattern#quote(String)}.
+	 * 
+	 * @param regex Regular expression to examine
+	 * @return The literal text matched by the regular expression, or <code>null</code>
+	 * if it isn't a simple quoted literal.
+	 */
+	private static String quotedLiteral(String regex)
+	{
+		if (regex.startsWith("\\Q") && regex.endsWith("\\E") && regex.indexOf("\\E") == regex.length() - 2)
+			return regex.substring(2, regex.length() - 2);
+		else
+			return null;
+	}
+	
 	/**
 	 * Create a regex pattern matcher that searches a string for a set of words and quote-enclosed phrases
 	 * separated by spaces, where * is a wild card.
@@ -214,6 +230,30 @@ public class TextFilter extends FilterLeaf<Collection<String>>
 		return filter;
 	}
 	
+	/**
+	 * @param other Filter to compare with
+	 * @return <code>true</code> if both this TextFilter and the other Filter are quick
+	 * filters of the same type and the text of this one contains the text of the
+	 * other one, or if this TextFilter otherwise refines the other Filter.
+	 * @see Filter#refines(Filter)
+	 */
+	@Override
+	public boolean refines(Filter other)
+	{
+		if (other instanceof TextFilter)
+		{
+			TextFilter o = (TextFilter)other;
+			if (o.type.equals(type) && regex && o.regex)
+			{
+				String literal = quotedLiteral(text);
+				String otherLiteral = quotedLiteral(o.text);
+				if (literal != null && otherLiteral != null && literal.contains(otherLiteral))
+					return true;
+			}
+		}
+		return super.refines(other);
+	}
+	
 	/**
 	 * @param other Object to compare with
 	 * @return <code>true</code> if the other Object is a TextFilter and its
@@ -45,16 +45,15 @@ public abstract class OptionsFilter<T> extends FilterLeaf<T>
 	/**
 	 * @return The String representation of this OptionsFilter's content,
 	 * which is its containment's String representation followed by the
-	 * String representations of its selected options surrounded by
-	 * braces and separated by commas.
+	 * String representations of its selected options in sorted order
+	 * surrounded by braces and separated by commas.
 	 * @see FilterLeaf#content()
 	 */
 	@Override
 	public String content()
 	{
 		StringJoiner join = new StringJoiner(",", "{", "}");
-		for (T option: selected)
-			join.add(option.toString());
+		selected.stream().map(String::valueOf).sorted().forEach(join::add);
 		return contain.toString() + join.toString();
 	}
 	
@@ -0,0 +1,481 @@
+package editor.gui;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Dialog;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.BorderFactory;
+import javax.swing.BoxLayout;
+import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JDialog;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JSpinner;
+import javax.swing.JTable;
+import javax.swing.JTextField;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.table.AbstractTableModel;
+
+import editor.collection.deck.DeckLibrary;
+import editor.collection.deck.LibraryQuery;
+import editor.filter.Filter;
+import editor.filter.FilterFactory;
+import editor.filter.FilterGroup;
+import editor.gui.filter.FilterGroupPanel;
+import editor.gui.generic.ScrollablePanel;
+import editor.util.MouseListenerFactory;
+
+/**
+ * This class represents a dialog for searching the decks saved in a directory tree.
+ * The user builds a {@link LibraryQuery} out of clauses, each of which counts the
+ * copies of cards in a deck that pass through a filter, and decks that match all of
+ * them are added to a table as they are found.  Before each search, the library's
+ * index is brought up to date and saved.  Double-clicking a deck in the table opens it.
+ *
+ * @author Alec Roelke
+ */
+@SuppressWarnings("serial")
+public class DeckLibraryDialog extends JDialog
+{
+	/**
+	 * Number of columns in the results table before the clause columns.
+	 */
+	private static final int INFO_COLS = 3;
+
+	/**
+	 * This class represents a panel for editing a clause of the query.
+	 *
+	 * @author Alec Roelke
+	 */
+	private class ClausePanel extends JPanel
+	{
+		/**
+		 * Box for choosing the relation of the clause.
+		 */
+		private JComboBox<LibraryQuery.Relation> relationBox;
+		/**
+		 * Spinner for choosing the number of copies.
+		 */
+		private JSpinner countSpinner;
+		/**
+		 * Field for entering the category to count cards in.
+		 */
+		private JTextField categoryField;
+		/**
+		 * Filter cards have to pass through to be counted.
+		 */
+		private Filter filter;
+
+		/**
+		 * Create a new ClausePanel showing a clause.
+		 *
+		 * @param clause Clause to show
+		 */
+		public ClausePanel(LibraryQuery.Clause clause)
+		{
+			super(new FlowLayout(FlowLayout.LEFT));
+
+			relationBox = new JComboBox<LibraryQuery.Relation>(LibraryQuery.Relation.values());
+			relationBox.setSelectedItem(clause.relation);
+			add(relationBox);
+			countSpinner = new JSpinner(new SpinnerNumberModel(clause.count, 0, Integer.MAX_VALUE, 1));
+			add(countSpinner);
+			relationBox.addActionListener((e) -> countSpinner.setEnabled(relationBox.getSelectedItem() != LibraryQuery.Relation.NONE));
+			countSpinner.setEnabled(clause.relation != LibraryQuery.Relation.NONE);
+
+			filter = clause.filter();
+			JButton filterButton = new JButton("Cards...");
+			filterButton.setToolTipText(filter.toString());
+			filterButton.addActionListener((e) -> {
+				Filter edited = editFilter(filter);
+				if (edited != null)
+				{
+					filter = edited;
+					filterButton.setToolTipText(filter.toString());
+				}
+			});
+			add(filterButton);
+
+			add(new JLabel("in category"));
+			categoryField = new JTextField(clause.category == null ? "" : clause.category, 10);
+			categoryField.setToolTipText("Leave blank to count cards in the whole deck");
+			add(categoryField);
+
+			JButton removeButton = new JButton("\u2212");
+			removeButton.addActionListener((e) -> {
+				clausePanels.remove(this);
+				clausesPanel.remove(this);
+				if (clausePanels.isEmpty())
+					addClause(defaultClause());
+				clausesPanel.revalidate();
+				clausesPanel.repaint();
+			});
+			add(removeButton);
+		}
+
+		/**
+		 * @return The clause shown by this ClausePanel.
+		 */
+		public LibraryQuery.Clause clause()
+		{
+			return new LibraryQuery.Clause(relationBox.getItemAt(relationBox.getSelectedIndex()), (int)countSpinner.getValue(), categoryField.getText().trim(), filter);
+		}
+	}
+
+	/**
+	 * @return A clause matching decks that have at least one card.
+	 */
+	private static LibraryQuery.Clause defaultClause()
+	{
+		return new LibraryQuery.Clause(LibraryQuery.Relation.AT_LEAST, 1, null, new FilterGroup(FilterFactory.createFilter(FilterFactory.NAME)));
+	}
+
+	/**
+	 * Frame that owns this dialog, which is used to open decks.
+	 */
+	private MainFrame parent;
+	/**
+	 * Library being searched, or <code>null</code> if its index hasn't been loaded yet.
+	 */
+	private DeckLibrary library;
+	/**
+	 * Field showing the root of the library.
+	 */
+	private JTextField rootField;
+	/**
+	 * Panel containing the clause panels.
+	 */
+	private JPanel clausesPanel;
+	/**
+	 * Panels editing the clauses of the query.
+	 */
+	private List<ClausePanel> clausePanels;
+	/**
+	 * Label showing the status of the search.
+	 */
+	private JLabel statusLabel;
+	/**
+	 * Button that starts and stops searches.
+	 */
+	private JButton searchButton;
+	/**
+	 * Query whose results are shown in the table.
+	 */
+	private LibraryQuery query;
+	/**
+	 * Decks that matched the query.
+	 */
+	private List<LibraryQuery.Result> results;
+	/**
+	 * Model of the table showing the decks that matched.
+	 */
+	private AbstractTableModel model;
+	/**
+	 * Worker running the current search, or <code>null</code> if no search is running.
+	 */
+	private SwingWorker<Integer, LibraryQuery.Result> worker;
+
+	/**
+	 * Create a new DeckLibraryDialog.  The library and query are the ones from the
+	 * last time it was used.
+	 *
+	 * @param owner Frame that owns the dialog and opens decks from it
+	 */
+	public DeckLibraryDialog(MainFrame owner)
+	{
+		super(owner, "Deck Library", Dialog.ModalityType.MODELESS);
+		setPreferredSize(new Dimension(800, 600));
+
+		parent = owner;
+		library = null;
+		clausePanels = new ArrayList<ClausePanel>();
+		query = new LibraryQuery(new ArrayList<LibraryQuery.Clause>());
+		results = new ArrayList<LibraryQuery.Result>();
+		worker = null;
+
+		JPanel contentPanel = new JPanel(new BorderLayout(0, 5));
+		contentPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+		setContentPane(contentPanel);
+
+		JPanel northPanel = new JPanel(new BorderLayout());
+		contentPanel.add(northPanel, BorderLayout.NORTH);
+
+		// Library root
+		JPanel rootPanel = new JPanel(new BorderLayout(5, 0));
+		rootPanel.add(new JLabel("Library:"), BorderLayout.WEST);
+		rootField = new JTextField(SettingsDialog.getAsString(SettingsDialog.LIBRARY_DIR));
+		rootField.setEditable(false);
+		rootPanel.add(rootField, BorderLayout.CENTER);
+		JButton browseButton = new JButton("Browse...");
+		browseButton.addActionListener((e) -> {
+			JFileChooser rootChooser = new JFileChooser(rootField.getText());
+			rootChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+			if (rootChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION)
+			{
+				rootField.setText(rootChooser.getSelectedFile().getPath());
+				SettingsDialog.set(SettingsDialog.LIBRARY_DIR, rootField.getText());
+				library = null;
+			}
+		});
+		rootPanel.add(browseButton, BorderLayout.EAST);
+		northPanel.add(rootPanel, BorderLayout.NORTH);
+
+		// Clauses
+		clausesPanel = new JPanel();
+		clausesPanel.setLayout(new BoxLayout(clausesPanel, BoxLayout.Y_AXIS));
+		ScrollablePanel clausesContainer = new ScrollablePanel(new BorderLayout(), ScrollablePanel.TRACK_WIDTH)
+		{
+			@Override
+			public Dimension getPreferredScrollableViewportSize()
+			{
+				Dimension size = clausesPanel.getPreferredSize();
+				size.height = Math.min(MainFrame.MAX_FILTER_HEIGHT/2, size.height);
+				return size;
+			}
+		};
+		clausesContainer.add(clausesPanel, BorderLayout.NORTH);
+		JScrollPane clausesPane = new JScrollPane(clausesContainer);
+		clausesPane.setBorder(BorderFactory.createTitledBorder("Decks with"));
+		northPanel.add(clausesPane, BorderLayout.CENTER);
+		try
+		{
+			String last = SettingsDialog.getAsString(SettingsDialog.LIBRARY_QUERY);
+			if (!last.isEmpty())
+				for (LibraryQuery.Clause clause: LibraryQuery.parse(last).clauses())
+					addClause(clause);
+		}
+		catch (IllegalArgumentException e)
+		{}
+		if (clausePanels.isEmpty())
+			addClause(defaultClause());
+
+		// Add clause and search buttons
+		JPanel buttonPanel = new JPanel(new BorderLayout());
+		JPanel leftButtonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+		JButton addButton = new JButton("+");
+		addButton.addActionListener((e) -> {
+			addClause(defaultClause());
+			clausesPanel.revalidate();
+		});
+		leftButtonPanel.add(addButton);
+		leftButtonPanel.add(statusLabel = new JLabel());
+		buttonPanel.add(leftButtonPanel, BorderLayout.CENTER);
+		JPanel rightButtonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+		searchButton = new JButton("Search");
+		searchButton.addActionListener((e) -> {
+			if (worker == null)
+				search();
+			else
+				worker.cancel(true);
+		});
+		rightButtonPanel.add(searchButton);
+		buttonPanel.add(rightButtonPanel, BorderLayout.EAST);
+		northPanel.add(buttonPanel, BorderLayout.SOUTH);
+
+		// Results
+		model = new AbstractTableModel()
+		{
+			@Override
+			public int getRowCount()
+			{
+				return results.size();
+			}
+
+			@Override
+			public int getColumnCount()
+			{
+				return INFO_COLS + query.clauses().size();
+			}
+
+			@Override
+			public String getColumnName(int column)
+			{
+				switch (column)
+				{
+				case 0:
+					return "Deck";
+				case 1:
+					return "Folder";
+				case 2:
+					return "Cards";
+				default:
+					return query.clauses()[column - INFO_COLS].describe();
+				}
+			}
+
+			@Override
+			public Class<?> getColumnClass(int column)
+			{
+				return column < 2 ? String.class : Integer.class;
+			}
+
+			@Override
+			public Object getValueAt(int row, int column)
+			{
+				LibraryQuery.Result result = results[row];
+				switch (column)
+				{
+				case 0:
+					return result.file.getName();
+				case 1:
+					return result.file.getParent();
+				case 2:
+					return result.total;
+				default:
+					return result.count(column - INFO_COLS);
+				}
+			}
+		};
+		JTable resultsTable = new JTable(model);
+		resultsTable.setAutoCreateRowSorter(true);
+		resultsTable.setFillsViewportHeight(true);
+		resultsTable.addMouseListener(MouseListenerFactory.createClickListener((e) -> {
+			int row = resultsTable.rowAtPoint(e.getPoint());
+			if (e.getClickCount() == 2 && row >= 0)
+				parent.open(results[resultsTable.convertRowIndexToModel(row)].file);
+		}));
+		contentPanel.add(new JScrollPane(resultsTable), BorderLayout.CENTER);
+
+		pack();
+		setLocationRelativeTo(owner);
+	}
+
+	/**
+	 * Add a panel for editing a clause to the end of the query.
+	 *
+	 * @param clause Clause to edit
+	 */
+	private void addClause(LibraryQuery.Clause clause)
+	{
+		ClausePanel panel = new ClausePanel(clause);
+		clausePanels.add(panel);
+		clausesPanel.add(panel);
+	}
+
+	/**
+	 * Show a dialog for editing a filter.
+	 *
+	 * @param filter Filter to edit
+	 * @return The edited filter, or <code>null</code> if editing was cancelled.
+	 */
+	private Filter editFilter(Filter filter)
+	{
+		FilterGroupPanel panel = new FilterGroupPanel();
+		panel.setContents(filter);
+		panel.addChangeListener((c) -> SwingUtilities.getWindowAncestor((Component)c.getSource()).pack());
+
+		ScrollablePanel panelPanel = new ScrollablePanel(new BorderLayout(), ScrollablePanel.TRACK_WIDTH)
+		{
+			@Override
+			public Dimension getPreferredScrollableViewportSize()
+			{
+				Dimension size = panel.getPreferredSize();
+				size.height = Math.min(MainFrame.MAX_FILTER_HEIGHT, size.height);
+				return size;
+			}
+		};
+		panelPanel.add(panel, BorderLayout.CENTER);
+		JScrollPane panelPane = new JScrollPane(panelPanel);
+		panelPane.setBorder(BorderFactory.createEmptyBorder());
+		if (JOptionPane.showConfirmDialog(this, panelPane, "Cards to Count", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE) == JOptionPane.OK_OPTION)
+			return panel.filter();
+		else
+			return null;
+	}
+
+	/**
+	 * Start searching the library with the query in the clause panels.  The library's
+	 * index is loaded if it hasn't been, brought up to date, and saved, and then the
+	 * decks are searched in parallel.  Matching decks are added to the table as they
+	 * are found.
+	 */
+	private void search()
+	{
+		List<LibraryQuery.Clause> clauses = new ArrayList<LibraryQuery.Clause>();
+		for (ClausePanel panel: clausePanels)
+			clauses.add(panel.clause());
+		query = new LibraryQuery(clauses);
+		SettingsDialog.set(SettingsDialog.LIBRARY_QUERY, query.toString());
+		results.clear();
+		model.fireTableStructureChanged();
+
+		boolean load = library == null;
+		if (load)
+			library = new DeckLibrary(new File(rootField.getText()));
+		DeckLibrary searched = library;
+		LibraryQuery searching = query;
+		statusLabel.setText("Indexing...");
+		searchButton.setText("Stop");
+		worker = new SwingWorker<Integer, LibraryQuery.Result>()
+		{
+			@Override
+			protected Integer doInBackground() throws Exception
+			{
+				if (load)
+				{
+					try
+					{
+						searched.load();
+					}
+					catch (IOException e)
+					{}
+				}
+				int read = searched.update();
+				searched.save();
+				SwingUtilities.invokeLater(() -> statusLabel.setText("Searching..."));
+				searching.run(searched, parent.inventory(), (r) -> publish(r));
+				return read;
+			}
+
+			@Override
+			protected void process(List<LibraryQuery.Result> chunks)
+			{
+				if (worker == this)
+				{
+					int first = results.size();
+					results.addAll(chunks);
+					model.fireTableRowsInserted(first, results.size() - 1);
+				}
+			}
+
+			@Override
+			protected void done()
+			{
+				if (worker == this)
+				{
+					worker = null;
+					searchButton.setText("Search");
+					try
+					{
+						int read = get();
+						statusLabel.setText(results.size() + " deck" + (results.size() == 1 ? "" : "s") + " found (" + read + " file" + (read == 1 ? "" : "s") + " indexed)");
+					}
+					catch (CancellationException e)
+					{
+						statusLabel.setText("Search stopped after " + results.size() + " deck" + (results.size() == 1 ? "" : "s"));
+					}
+					catch (InterruptedException | ExecutionException e)
+					{
+						statusLabel.setText("");
+						JOptionPane.showMessageDialog(DeckLibraryDialog.this, "Error searching library: " + e.getMessage() + ".", "Error", JOptionPane.ERROR_MESSAGE);
+					}
+				}
+			}
+		};
+		worker.execute();
+	}
+}
@@ -40,6 +40,7 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.StringJoiner;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 import javax.swing.AbstractAction;
@@ -64,16 +65,21 @@ import javax.swing.JSpinner;
 import javax.swing.JSplitPane;
 import javax.swing.JTabbedPane;
 import javax.swing.JTable;
+import javax.swing.JTextArea;
 import javax.swing.JTextField;
 import javax.swing.JTextPane;
 import javax.swing.KeyStroke;
 import javax.swing.ListSelectionModel;
 import javax.swing.SpinnerNumberModel;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import javax.swing.TransferHandler;
 import javax.swing.UIManager;
 import javax.swing.UnsupportedLookAndFeelException;
 import javax.swing.WindowConstants;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.TableModel;
@@ -93,6 +99,8 @@ import editor.database.characteristics.Loyalty;
 import editor.database.characteristics.PowerToughness;
 import editor.database.characteristics.Rarity;
 import editor.database.symbol.Symbol;
+import editor.filter.Filter;
+import editor.filter.FilterCache;
 import editor.filter.FilterFactory;
 import editor.filter.leaf.TextFilter;
 import editor.gui.display.CardImagePanel;
@@ -100,6 +108,7 @@ import editor.gui.display.CardTable;
 import editor.gui.display.CardTableModel;
 import editor.gui.editor.EditorFrame;
 import editor.gui.filter.FilterGroupPanel;
+import editor.gui.filter.FilterProfilePanel;
 import editor.gui.generic.ScrollablePanel;
 import editor.gui.generic.TableMouseAdapter;
 import editor.gui.inventory.InventoryDownloadDialog;
@@ -149,6 +158,15 @@ public class MainFrame extends JFrame
 	 * Maximum height that the advanced filter editor panel can attain before scrolling.
 	 */
 	public static final int MAX_FILTER_HEIGHT = 300;
+	/**
+	 * Time in milliseconds to wait after the last keystroke in the quick-filter bar
+	 * before filtering the inventory.
+	 */
+	public static final int QUICK_FILTER_DELAY = 200;
+	/**
+	 * Maximum number of card names to suggest while typing in the quick-filter bar.
+	 */
+	public static final int MAX_COMPLETIONS = 10;
 	
 	/**
 	 * Entry point for the program. All it does is set the look and feel to the
@@ -272,6 +290,14 @@ public class MainFrame extends JFrame
 	 * Top menu allowing editing of cards and categories in the selected deck.
 	 */
 	private JMenu deckMenu;
+	/**
+	 * Timer that waits for typing in the quick-filter bar to pause before filtering.
+	 */
+	private Timer quickFilterTimer;
+	/**
+	 * Worker filtering the inventory in the background for the quick-filter bar.
+	 */
+	private SwingWorker<Void, Void> quickFilterWorker;
 	
 	/**
 	 * Create a new MainFrame.
@@ -389,6 +415,11 @@ public class MainFrame extends JFrame
 				updateRecents(new File(fname));
 		fileMenu.add(recentsMenu);
 		
+		// Deck library menu item
+		JMenuItem libraryItem = new JMenuItem("Deck Library...");
+		libraryItem.addActionListener((e) -> new DeckLibraryDialog(this).setVisible(true));
+		fileMenu.add(libraryItem);
+		
 		fileMenu.add(new JSeparator());
 		
 		// Exit menu item
@@ -464,6 +495,23 @@ public class MainFrame extends JFrame
 		});
 		addMenu.add(addNItem);
 		
+		// Paste decklist item
+		JMenuItem pasteDecklistItem = new JMenuItem("Paste Decklist...");
+		pasteDecklistItem.addActionListener((e) -> {
+			if (selectedFrame != null)
+			{
+				JTextArea decklistArea = new JTextArea(20, 40);
+				JScrollPane decklistPane = new JScrollPane(decklistArea);
+				if (JOptionPane.showConfirmDialog(this, decklistPane, "Paste Decklist", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE) == JOptionPane.OK_OPTION)
+				{
+					List<String> unresolved = selectedFrame.importDecklist(decklistArea.getText());
+					if (!unresolved.isEmpty())
+						JOptionPane.showMessageDialog(this, "Could not find cards for these lines:\n" + String.join("\n", unresolved), "Warning", JOptionPane.WARNING_MESSAGE);
+				}
+			}
+		});
+		addMenu.add(pasteDecklistItem);
+		
 		// Remove card menu
 		JMenu removeMenu = new JMenu("Remove Cards");
 		deckMenu.add(removeMenu);
@@ -777,6 +825,10 @@ public class MainFrame extends JFrame
 		JTextField nameFilterField = new JTextField();
 		filterPanel.add(nameFilterField);
 		
+		// Popup suggesting card names that begin with the text in the quick-filter bar
+		JPopupMenu completionsMenu = new JPopupMenu();
+		completionsMenu.setFocusable(false);
+		
 		// Button for clearing the filter
 		JButton clearButton = new JButton("X");
 		filterPanel.add(clearButton);
@@ -892,16 +944,61 @@ public class MainFrame extends JFrame
 		editTagsItem.addActionListener((e) -> editTags(getSelectedCards()));
 		inventoryMenu.add(editTagsItem);
 		
+		// Action to be taken when the user stops typing in the quick-filter bar (filter the
+		// inventory and suggest names)
+		quickFilterTimer = new Timer(QUICK_FILTER_DELAY, (e) -> {
+			quickFilter(nameFilterField.getText());
+			completionsMenu.setVisible(false);
+			completionsMenu.removeAll();
+			if (nameFilterField.isFocusOwner() && !nameFilterField.getText().isEmpty())
+			{
+				for (String name: inventory.completions(nameFilterField.getText(), MAX_COMPLETIONS))
+				{
+					JMenuItem completionItem = new JMenuItem(name);
+					completionItem.addActionListener((a) -> {
+						nameFilterField.setText(name);
+						quickFilterTimer.stop();
+						quickFilter(name);
+					});
+					completionsMenu.add(completionItem);
+				}
+				if (completionsMenu.getComponentCount() > 0)
+					completionsMenu.show(nameFilterField, 0, nameFilterField.getHeight());
+			}
+		});
+		quickFilterTimer.setRepeats(false);
+		nameFilterField.getDocument().addDocumentListener(new DocumentListener()
+		{
+			@Override
+			public void changedUpdate(DocumentEvent e)
+			{}
+
+			@Override
+			public void insertUpdate(DocumentEvent e)
+			{
+				quickFilterTimer.restart();
+			}
+
+			@Override
+			public void removeUpdate(DocumentEvent e)
+			{
+				quickFilterTimer.restart();
+			}
+		});
+		
 		// Action to be taken when the user presses the Enter key after entering text into the quick-filter
 		// bar
 		nameFilterField.addActionListener((e) -> {
-			inventory.updateFilter(TextFilter.createQuickFilter(FilterFactory.NAME, nameFilterField.getText().toLowerCase()));
-			inventoryModel.fireTableDataChanged();
+			completionsMenu.setVisible(false);
+			quickFilterTimer.stop();
+			quickFilter(nameFilterField.getText());
 		});
 		
 		// Action to be taken when the clear button is pressed (reset the filter)
 		clearButton.addActionListener((e) -> {
+			completionsMenu.setVisible(false);
 			nameFilterField.setText("");
+			cancelQuickFilter();
 			inventory.updateFilter(FilterFactory.createFilter(FilterFactory.ALL));
 			inventoryModel.fireTableDataChanged();
 		});
@@ -930,9 +1027,18 @@ public class MainFrame extends JFrame
 			
 			JScrollPane panelPane = new JScrollPane(panelPanel);
 			panelPane.setBorder(BorderFactory.createEmptyBorder());
-			if (JOptionPane.showConfirmDialog(this, panelPane, "Advanced Filter", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE) == JOptionPane.OK_OPTION)
+			
+			JPanel dialogPanel = new JPanel(new BorderLayout());
+			dialogPanel.add(panelPane, BorderLayout.CENTER);
+			JPanel explainPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+			JButton explainButton = new JButton("Explain...");
+			explainButton.addActionListener((v) -> FilterProfilePanel.showProfile(dialogPanel, panel.filter(), inventory));
+			explainPanel.add(explainButton);
+			dialogPanel.add(explainPanel, BorderLayout.SOUTH);
+			if (JOptionPane.showConfirmDialog(this, dialogPanel, "Advanced Filter", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE) == JOptionPane.OK_OPTION)
 			{
 				nameFilterField.setText("");
+				cancelQuickFilter();
 				inventory.updateFilter(panel.filter());
 				inventoryModel.fireTableDataChanged();
 			}
@@ -1566,6 +1672,64 @@ public class MainFrame extends JFrame
 		{}
 	}
 	
+	/**
+	 * Filter the inventory by card name in the background, abandoning any quick
+	 * filter that is already in progress.  Once filtering is done, the result is
+	 * displayed in the inventory table unless it has been superseded.
+	 * 
+	 * @param text Text to search card names for
+	 */
+	private void quickFilter(String text)
+	{
+		cancelQuickFilter();
+		Inventory toFilter = inventory;
+		Filter filter = TextFilter.createQuickFilter(FilterFactory.NAME, Card.normalize(text));
+		quickFilterWorker = new SwingWorker<Void, Void>()
+		{
+			@Override
+			protected Void doInBackground() throws Exception
+			{
+				toFilter.filter(filter);
+				return null;
+			}
+			
+			@Override
+			protected void done()
+			{
+				if (!isCancelled() && quickFilterWorker == this && inventory == toFilter)
+				{
+					try
+					{
+						get();
+					}
+					catch (InterruptedException | ExecutionException e)
+					{
+						return;
+					}
+					quickFilterWorker = null;
+					// The result was already computed, so this just displays it
+					inventory.updateFilter(filter);
+					inventoryModel.fireTableDataChanged();
+				}
+			}
+		};
+		quickFilterWorker.execute();
+	}
+	
+	/**
+	 * Stop waiting to filter by the contents of the quick-filter bar and abandon any
+	 * quick filter that is in progress.
+	 */
+	private void cancelQuickFilter()
+	{
+		quickFilterTimer.stop();
+		if (quickFilterWorker != null)
+		{
+			quickFilterWorker.cancel(true);
+			quickFilterWorker = null;
+		}
+	}
+	
 	/**
 	 * Update the inventory table to bold the cards that are in the currently-selected editor.
 	 */
@@ -1626,6 +1790,12 @@ public class MainFrame extends JFrame
 					}
 					return v;
 				});
+			Set<Card> retagged = new HashSet<Card>(cardTagPanel.getTagged().keySet());
+			retagged.addAll(cardTagPanel.getUntagged().keySet());
+			inventory.clearFilterHistory();
+			FilterCache.invalidate(retagged);
+			for (EditorFrame frame: editors)
+				frame.retestCards(retagged);
 		}
 	}
 	
@@ -174,6 +174,24 @@ public class SettingsDialog extends JDialog
 	 * Stripe color for editor tables.
 	 */
 	public static final String EDITOR_STRIPE = "editor.stripe";
+	/**
+	 * Maximum number of actions that can be undone in an editor.
+	 */
+	public static final String EDITOR_UNDO_DEPTH = "editor.undo";
+	/**
+	 * Whether or not to compress deck files when saving them.
+	 */
+	public static final String EDITOR_COMPRESS = "editor.compress";
+	
+	////////////////// DECK LIBRARY SETTINGS ////////////////
+	/**
+	 * Root directory of the deck library.
+	 */
+	public static final String LIBRARY_DIR = "library.dir";
+	/**
+	 * Last query run over the deck library.
+	 */
+	public static final String LIBRARY_QUERY = "library.query";
 	
 	////////////////// SAMPLE HAND SETTINGS ////////////////
 	/**
@@ -249,6 +267,10 @@ public class SettingsDialog extends JDialog
 		SETTINGS[CATEGORY_ROWS] = "6";
 		SETTINGS[EDITOR_COLUMNS] = "Name,Count,Mana Cost,Type,Expansion,Rarity,Categories,Date Added";
 		SETTINGS[EDITOR_STRIPE] = "#FFCCCCCC";
+		SETTINGS[EDITOR_UNDO_DEPTH] = "100";
+		SETTINGS[EDITOR_COMPRESS] = "false";
+		SETTINGS[LIBRARY_DIR] = System.getProperty("user.home");
+		SETTINGS[LIBRARY_QUERY] = "";
 		SETTINGS[EDITOR_PRESETS] = "\u00ABArtifacts\u00BB \u00AB\u00BB \u00AB\u00BB \u00AB\u00BB \u00ABAND \u00ABtype:contains any of\"artifact\"\u00BB \u00ABtype:contains none of\"creature\"\u00BB\u00BB\u220E\u00ABCreatures\u00BB \u00AB\u00BB \u00AB\u00BB \u00AB\u00BB \u00ABAND \u00ABtype:contains any of\"creature\"\u00BB\u00BB\u220E\u00ABLands\u00BB \u00AB\u00BB \u00AB\u00BB \u00AB\u00BB \u00ABAND \u00ABtype:contains any of\"land\"\u00BB\u00BB\u220E\u00ABInstants/Sorceries\u00BB \u00AB\u00BB \u00AB\u00BB \u00AB\u00BB \u00ABAND \u00ABtype:contains any of\"instant sorcery\"\u00BB\u00BB";
 		SETTINGS[HAND_SIZE] = "7";
 		SETTINGS[EXPECTED_ROUND_MODE] = "No rounding";
@@ -459,6 +481,15 @@ public class SettingsDialog extends JDialog
 	 * in the category editor.
 	 */
 	private JSpinner explicitsSpinner;
+	/**
+	 * Spinner allowing setting the maximum number of actions that can be undone in
+	 * an editor.
+	 */
+	private JSpinner undoSpinner;
+	/**
+	 * Check box indicating whether or not deck files should be compressed when saved.
+	 */
+	private JCheckBox compressCheckBox;
 	/**
 	 * TODO: Comment this
 	 */
@@ -681,6 +712,28 @@ public class SettingsDialog extends JDialog
 		explicitsPanel.setMaximumSize(explicitsPanel.getPreferredSize());
 		explicitsPanel.setAlignmentX(LEFT_ALIGNMENT);
 		editorPanel.add(explicitsPanel);
+		editorPanel.add(Box.createVerticalStrut(5));
+		
+		// Undo depth
+		JPanel undoPanel = new JPanel();
+		undoPanel.setLayout(new BoxLayout(undoPanel, BoxLayout.X_AXIS));
+		undoPanel.add(new JLabel("Maximum actions to undo:"));
+		undoPanel.add(Box.createHorizontalStrut(5));
+		undoSpinner = new JSpinner(new SpinnerNumberModel(1, 1, Integer.MAX_VALUE, 1));
+		undoSpinner.getModel().setValue(Integer.valueOf(getAsString(EDITOR_UNDO_DEPTH)));
+		undoPanel.add(undoSpinner);
+		undoPanel.setMaximumSize(undoPanel.getPreferredSize());
+		undoPanel.setAlignmentX(LEFT_ALIGNMENT);
+		editorPanel.add(undoPanel);
+		editorPanel.add(Box.createVerticalStrut(5));
+		
+		// Compress deck files
+		JPanel compressPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+		compressCheckBox = new JCheckBox("Compress deck files when saving", getAsBoolean(EDITOR_COMPRESS));
+		compressPanel.add(compressCheckBox);
+		compressPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, compressPanel.getPreferredSize().height));
+		compressPanel.setAlignmentX(LEFT_ALIGNMENT);
+		editorPanel.add(compressPanel);
 		
 		editorPanel.add(Box.createVerticalGlue());
 		
@@ -910,6 +963,8 @@ public class SettingsDialog extends JDialog
 		SETTINGS[INVENTORY_STRIPE] = colorToString(inventoryStripeColor.getColor());
 		SETTINGS[RECENT_COUNT] = recentSpinner.getValue().toString();
 		SETTINGS[EXPLICITS_ROWS] = explicitsSpinner.getValue().toString();
+		SETTINGS[EDITOR_UNDO_DEPTH] = undoSpinner.getValue().toString();
+		SETTINGS[EDITOR_COMPRESS] = Boolean.toString(compressCheckBox.isSelected());
 		SETTINGS[CATEGORY_ROWS] = rowsSpinner.getValue().toString();
 		join = new StringJoiner(",");
 		for (JCheckBox box: editorColumnCheckBoxes)
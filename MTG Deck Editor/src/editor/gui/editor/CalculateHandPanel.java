@@ -10,6 +10,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -24,6 +25,7 @@ import javax.swing.JSpinner;
 import javax.swing.JTable;
 import javax.swing.ListSelectionModel;
 import javax.swing.SpinnerNumberModel;
+import javax.swing.SwingWorker;
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.TableCellEditor;
@@ -215,6 +217,11 @@ public class CalculateHandPanel extends JPanel
 	 * Combo box for picking the display mode.
 	 */
 	private JComboBox<DisplayMode> modeBox;
+	/**
+	 * Worker calculating probabilities and expected counts in the background, or
+	 * <code>null</code> if none has been started yet.
+	 */
+	private SwingWorker<Calculation, Void> worker;
 	
 	/**
 	 * Create a new CalculateHandPanel and populate it with its initial
@@ -364,41 +371,112 @@ public class CalculateHandPanel extends JPanel
 	 */
 	public void recalculate()
 	{
-		List<String> categories = deck.categories().stream().map(CategorySpec::getName).sorted().collect(Collectors.toList());
-		
-		probabilities.clear();
+		Deck.Snapshot snapshot = deck.snapshot();
 		int hand = (int)handSpinner.getValue();
 		int draws = (int)drawsSpinner.getValue();
+		Map<String, Relation> relations = new HashMap<String, Relation>();
+		Map<String, Integer> desired = new HashMap<String, Integer>();
+		for (String category: snapshot.categories())
+		{
+			if (relationBoxes.containsKey(category) && desiredBoxes.containsKey(category))
+			{
+				relations[category] = (Relation)relationBoxes[category].getSelectedItem();
+				desired[category] = desiredBoxes[category].getSelectedIndex();
+			}
+		}
 		
-		for (String category: categories)
+		if (worker != null)
+			worker.cancel(false);
+		worker = new SwingWorker<Calculation, Void>()
+		{
+			@Override
+			protected Calculation doInBackground() throws Exception
+			{
+				return new Calculation(snapshot, hand, draws, relations, desired);
+			}
+			
+			@Override
+			protected void done()
+			{
+				if (worker == this && !isCancelled())
+				{
+					try
+					{
+						probabilities = get().probabilities;
+						expectedCounts = get().expectedCounts;
+						model.fireTableDataChanged();
+					}
+					catch (InterruptedException | ExecutionException e)
+					{
+						e.printStackTrace();
+					}
+				}
+			}
+		};
+		worker.execute();
+	}
+	
+	/**
+	 * This class calculates the probabilities of drawing the desired numbers of cards
+	 * in each category and the expected numbers of cards drawn from each category.
+	 * It only uses a snapshot of the deck and copies of the settings, so it can be done
+	 * on a worker thread while the deck is being edited.
+	 * 
+	 * @author Alec Roelke
+	 */
+	private static class Calculation
+	{
+		/**
+		 * Probabilities for the opening hand and each draw afterward for each category.
+		 */
+		private final Map<String, List<Double>> probabilities;
+		/**
+		 * Expected counts for the opening hand and each draw afterward for each category.
+		 */
+		private final Map<String, List<Double>> expectedCounts;
+		
+		/**
+		 * Create a new Calculation and perform it.
+		 * 
+		 * @param deck Snapshot of the deck to draw from
+		 * @param hand Size of the opening hand
+		 * @param draws Number of draws after the opening hand
+		 * @param relations Relation to the desired number of cards for each category
+		 * @param desired Desired number of cards for each category
+		 */
+		private Calculation(Deck.Snapshot deck, int hand, int draws, Map<String, Relation> relations, Map<String, Integer> desired)
 		{
-			probabilities[category] = new ArrayList<Double>(Collections.nCopies(1 + draws, 0.0));
-			expectedCounts[category] = new ArrayList<Double>(Collections.nCopies(1 + draws, 0.0));
-			Relation r = (Relation)relationBoxes[category].getSelectedItem();
-			for (int j = 0; j <= draws; j++)
+			probabilities = new HashMap<String, List<Double>>();
+			expectedCounts = new HashMap<String, List<Double>>();
+			for (String category: relations.keySet())
 			{
-				double p = 0.0;
-				switch (r)
+				probabilities[category] = new ArrayList<Double>(Collections.nCopies(1 + draws, 0.0));
+				expectedCounts[category] = new ArrayList<Double>(Collections.nCopies(1 + draws, 0.0));
+				Relation r = relations[category];
+				for (int j = 0; j <= draws; j++)
 				{
-				case AT_LEAST:
-					for (int k = 0; k < desiredBoxes[category].getSelectedIndex(); k++)
-						p += hypergeom(k, hand + j, deck.total(category), deck.total());
-					p = 1.0 - p;
-					break;
-				case EXACTLY:
-					p = hypergeom(desiredBoxes[category].getSelectedIndex(), hand + j, deck.total(category), deck.total());
-					break;
-				case AT_MOST:
-					for (int k = 0; k <= desiredBoxes[category].getSelectedIndex(); k++)
-						p += hypergeom(k, hand + j, deck.total(category), deck.total());
-					break;
+					double p = 0.0;
+					switch (r)
+					{
+					case AT_LEAST:
+						for (int k = 0; k < desired[category]; k++)
+							p += hypergeom(k, hand + j, deck.total(category), deck.total());
+						p = 1.0 - p;
+						break;
+					case EXACTLY:
+						p = hypergeom(desired[category], hand + j, deck.total(category), deck.total());
+						break;
+					case AT_MOST:
+						for (int k = 0; k <= desired[category]; k++)
+							p += hypergeom(k, hand + j, deck.total(category), deck.total());
+						break;
+					}
+					probabilities[category][j] = p;
+					// TODO: This might be wrong
+					expectedCounts[category][j] = (double)deck.total(category)/deck.total()*(hand + j);
 				}
-				probabilities[category][j] = p;
-				// TODO: This might be wrong
-				expectedCounts[category][j] = (double)deck.total(category)/deck.total()*(hand + j);
 			}
 		}
-		model.fireTableDataChanged();
 	}
 	
 	/**
@@ -566,12 +644,15 @@ public class CalculateHandPanel extends JPanel
 				case RELATION:
 					return relationBoxes[category].getSelectedItem();
 				default:
-					return String.format("%.2f%%", probabilities[category][columnIndex - (P_INFO_COLS - 1)]*100.0);
+					if (probabilities.containsKey(category) && columnIndex - (P_INFO_COLS - 1) < probabilities[category].size())
+						return String.format("%.2f%%", probabilities[category][columnIndex - (P_INFO_COLS - 1)]*100.0);
+					else
+						return "";
 				}
 			case EXPECTED_COUNT:
 				if (columnIndex == CATEGORY)
 					return category;
-				else if (columnIndex - (E_INFO_COLS - 1) < expectedCounts[category].size())
+				else if (expectedCounts.containsKey(category) && columnIndex - (E_INFO_COLS - 1) < expectedCounts[category].size())
 					return ROUND_MODE[SettingsDialog.getAsString(SettingsDialog.EXPECTED_ROUND_MODE)].apply(expectedCounts[category][columnIndex - (E_INFO_COLS - 1)]);
 				else
 					return "";
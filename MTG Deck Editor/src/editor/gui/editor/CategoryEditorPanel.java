@@ -5,12 +5,14 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Container;
 import java.awt.Dimension;
+import java.awt.FlowLayout;
 import java.awt.GridLayout;
 import java.util.stream.Collectors;
 
 import javax.swing.BorderFactory;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
+import javax.swing.JButton;
 import javax.swing.JColorChooser;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
@@ -24,6 +26,7 @@ import editor.database.card.Card;
 import editor.filter.Filter;
 import editor.gui.display.CardList;
 import editor.gui.filter.FilterGroupPanel;
+import editor.gui.filter.FilterProfilePanel;
 import editor.gui.generic.ColorButton;
 import editor.gui.generic.ScrollablePanel;
 
@@ -45,14 +48,16 @@ public class CategoryEditorPanel extends JPanel
 	
 	/**
 	 * Show a dialog allowing the editing of categories.  If the OK button is pressed, return the panel as it was
-	 * edited.
+	 * edited.  The dialog also has a button for explaining how the category's filter performs on a collection
+	 * of cards.
 	 * 
 	 * @param parent Component to be used to determine the Frame of the dialog
 	 * @param s Specification for the initial contents of the editor
+	 * @param cards Cards to explain the filter with, or <code>null</code> to hide the explain button
 	 * @return The CategorySpec of the panel in the state it was last in while editing it, or <code>null</code> if
 	 * the Cancel button was pressed or the dialog was closed.
 	 */
-	public static CategorySpec showCategoryEditor(Container parent, CategorySpec s)
+	public static CategorySpec showCategoryEditor(Container parent, CategorySpec s, Iterable<? extends Card> cards)
 	{
 		CategoryEditorPanel editor = new CategoryEditorPanel(s);
 		editor.filter.addChangeListener((e) -> SwingUtilities.getWindowAncestor((Component)e.getSource()).pack());
@@ -71,7 +76,17 @@ public class CategoryEditorPanel extends JPanel
 		{
 			JScrollPane editorPane = new JScrollPane(editorPanel);
 			editorPane.setBorder(BorderFactory.createEmptyBorder());
-			if (JOptionPane.showConfirmDialog(parent, editorPane, "Category Editor", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE) == JOptionPane.OK_OPTION)
+			JPanel dialogPanel = new JPanel(new BorderLayout());
+			dialogPanel.add(editorPane, BorderLayout.CENTER);
+			if (cards != null)
+			{
+				JPanel explainPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+				JButton explainButton = new JButton("Explain...");
+				explainButton.addActionListener((e) -> FilterProfilePanel.showProfile(dialogPanel, editor.filter.filter(), cards));
+				explainPanel.add(explainButton);
+				dialogPanel.add(explainPanel, BorderLayout.SOUTH);
+			}
+			if (JOptionPane.showConfirmDialog(parent, dialogPanel, "Category Editor", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE) == JOptionPane.OK_OPTION)
 			{
 				if (editor.nameField.getText().isEmpty())
 					JOptionPane.showMessageDialog(null, "Category must have a name.", "Error", JOptionPane.ERROR_MESSAGE);
@@ -88,6 +103,20 @@ public class CategoryEditorPanel extends JPanel
 		}
 	}
 	
+	/**
+	 * Show a dialog allowing the editing of categories.  If the OK button is pressed, return the panel as it was
+	 * edited.
+	 * 
+	 * @param parent Component to be used to determine the Frame of the dialog
+	 * @param s Specification for the initial contents of the editor
+	 * @return The CategorySpec of the panel in the state it was last in while editing it, or <code>null</code> if
+	 * the Cancel button was pressed or the dialog was closed.
+	 */
+	public static CategorySpec showCategoryEditor(Container parent, CategorySpec s)
+	{
+		return showCategoryEditor(parent, s, null);
+	}
+	
 	/**
 	 * Show a dialog allowing the editing of categories.  If the OK button is pressed, return the panel as it was
 	 * edited.  The panel will start off blank.
@@ -11,22 +11,16 @@ import java.awt.GridBagLayout;
 import java.awt.Rectangle;
 import java.awt.datatransfer.Transferable;
 import java.awt.datatransfer.UnsupportedFlavorException;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -34,6 +28,8 @@ import java.util.Stack;
 import java.util.concurrent.ExecutionException;
 import java.util.function.BooleanSupplier;
 import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import javax.swing.BorderFactory;
@@ -68,6 +64,7 @@ import javax.swing.SpinnerNumberModel;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import javax.swing.TransferHandler;
 import javax.swing.UIManager;
 import javax.swing.WindowConstants;
@@ -83,6 +80,11 @@ import editor.collection.CardList;
 import editor.collection.LegalityChecker;
 import editor.collection.category.CategorySpec;
 import editor.collection.deck.Deck;
+import editor.collection.deck.DeckDiff;
+import editor.collection.deck.DeckDispatcher;
+import editor.collection.deck.DeckFile;
+import editor.collection.deck.DeckJournal;
+import editor.collection.deck.DeckStatistics;
 import editor.collection.deck.Hand;
 import editor.database.card.Card;
 import editor.database.characteristics.CardData;
@@ -126,6 +128,21 @@ public class EditorFrame extends JInternalFrame
 	 * Tab number containing the changelog.
 	 */
 	public static final int CHANGELOG = 3;
+	/**
+	 * Pattern matching a line of a decklist, which is an optional number of copies
+	 * followed by a card name and optionally an expansion code in parentheses and
+	 * a collector's number.
+	 */
+	public static final Pattern DECKLIST_LINE = Pattern.compile("^\\s*(?:(\\d+)\\s*[xX]?\\s+)?(.+?)(?:\\s+\\((\\w+)\\)(?:\\s+\\S+)?)?\\s*$");
+	/**
+	 * Maximum number of typos to correct in a card name from a decklist.
+	 */
+	public static final int MAX_NAME_DISTANCE = 2;
+	/**
+	 * Time in milliseconds between writes of changes recorded in a deck's journal
+	 * to disk.
+	 */
+	public static final int JOURNAL_DELAY = 1000;
 	
 	/**
 	 * This enum represents an order that category panels can be sorted in.
@@ -202,7 +219,7 @@ public class EditorFrame extends JInternalFrame
 	/**
 	 * Last-saved version of the deck, used for the changelog.
 	 */
-	private Deck originalDeck;
+	private Deck.Snapshot originalDeck;
 	/**
 	 * TODO: Comment this
 	 */
@@ -314,6 +331,19 @@ public class EditorFrame extends JInternalFrame
 	 * Label showing the median CMC of nonland cards in the deck.
 	 */
 	private JLabel medCMCLabel;
+	/**
+	 * Statistics about the cards in the deck, which are shown in the stats labels.
+	 */
+	private DeckStatistics stats;
+	/**
+	 * Journal recording unsaved changes to the deck, or <code>null</code> if the deck
+	 * has no file yet.
+	 */
+	private DeckJournal journal;
+	/**
+	 * Timer that periodically writes the changes recorded in the journal to disk.
+	 */
+	private Timer journalTimer;
 	/**
 	 * Panel showing a sample hand and a table showing probabilities of category requirements.
 	 */
@@ -335,13 +365,26 @@ public class EditorFrame extends JInternalFrame
 
 		parent = p;
 		deck = new Deck();
+		stats = new DeckStatistics();
 		sideboard = new Deck();
-		originalDeck = new Deck();
+		originalDeck = deck.snapshot();
 		originalSideboard = new Deck();
 		file = null;
 		unsaved = false;
 		undoBuffer = new Stack<UndoableAction>();
 		redoBuffer = new Stack<UndoableAction>();
+		journal = null;
+		journalTimer = new Timer(JOURNAL_DELAY, (e) -> {
+			try
+			{
+				if (journal != null)
+					journal.flush();
+			}
+			catch (IOException x)
+			{
+				x.printStackTrace();
+			}
+		});
 		startingHandSize = SettingsDialog.getAsInt(SettingsDialog.HAND_SIZE);
 		selectedCards = new ArrayList<Card>();
 		selectedSource = null;
@@ -751,9 +794,34 @@ public class EditorFrame extends JInternalFrame
 		JPanel legalityPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 5));
 		JButton legalityButton = new JButton("Show Legality");
 		legalityButton.addActionListener((e) -> {
-			LegalityChecker checker = new LegalityChecker();
-			checker.checkLegality(deck);
-			JOptionPane.showMessageDialog(this, new LegalityPanel(checker), "Legality of " + deckName(), JOptionPane.PLAIN_MESSAGE);
+			// Check against a snapshot so the deck can still be edited while checking
+			Deck.Snapshot snapshot = deck.snapshot();
+			String name = deckName();
+			legalityButton.setEnabled(false);
+			new SwingWorker<LegalityChecker, Void>()
+			{
+				@Override
+				protected LegalityChecker doInBackground() throws Exception
+				{
+					LegalityChecker checker = new LegalityChecker();
+					checker.checkLegality(snapshot);
+					return checker;
+				}
+				
+				@Override
+				protected void done()
+				{
+					legalityButton.setEnabled(true);
+					try
+					{
+						JOptionPane.showMessageDialog(EditorFrame.this, new LegalityPanel(get()), "Legality of " + name, JOptionPane.PLAIN_MESSAGE);
+					}
+					catch (InterruptedException | ExecutionException x)
+					{
+						JOptionPane.showMessageDialog(EditorFrame.this, "Error checking legality: " + x.getMessage() + ".", "Error", JOptionPane.ERROR_MESSAGE);
+					}
+				}
+			}.execute();
 		});
 		legalityPanel.add(legalityButton);
 		GridBagConstraints legalityConstraints = new GridBagConstraints();
@@ -787,12 +855,20 @@ public class EditorFrame extends JInternalFrame
 		
 		setTransferHandler(new EditorImportHandler());
 		
+		// Statistics and probabilities only need to keep up with the screen
+		deck.addDeckListener(new DeckDispatcher((e) -> {
+			if (e.cardsChanged())
+			{
+				stats.update(e);
+				updateStats();
+			}
+			if (e.cardsChanged() || e.categoryAdded() || e.categoriesRemoved() || e.categoryChanged())
+				handCalculations.update();
+		}, SwingUtilities::invokeLater, DeckDispatcher.FRAME));
 		deck.addDeckListener((e) -> {
 			// Cards
 			if (e.cardsChanged())
 			{
-				updateStats();
-				
 				if (!opening)
 					parent.updateCardsInDeck();
 				((AbstractTableModel)table.getModel()).fireTableDataChanged();
@@ -813,17 +889,16 @@ public class EditorFrame extends JInternalFrame
 						c.table.getCellEditor().cancelCellEditing();
 				
 				hand.refresh();
-				handCalculations.update();
 			}
 			// Categories
 			if (e.categoryAdded())
 			{
-				CategoryPanel category = createCategoryPanel(deck.getCategorySpec(e.addedName()));
-				categoryPanels.add(category);
-				
 				for (CategoryPanel c: categoryPanels)
-					if (c != category)
-						c.rankBox.addItem(deck.categories().size() - 1);
+					for (int i = categoryPanels.size(); i < deck.categories().size(); i++)
+						c.rankBox.addItem(i);
+				for (String name: e.addedNames())
+					categoryPanels.add(createCategoryPanel(deck.getCategorySpec(name)));
+				CategoryPanel category = getCategory(e.addedName());
 				
 				listTabs.setSelectedIndex(CATEGORIES);
 				updateCategoryPanel();
@@ -832,7 +907,6 @@ public class EditorFrame extends JInternalFrame
 					category.scrollRectToVisible(new Rectangle(category.getSize()));
 					category.flash();
 				});
-				handCalculations.update();
 			}
 			if (e.categoriesRemoved())
 			{
@@ -845,7 +919,6 @@ public class EditorFrame extends JInternalFrame
 				
 				listTabs.setSelectedIndex(CATEGORIES);
 				updateCategoryPanel();
-				handCalculations.update();
 			}
 			if (e.ranksChanged())
 			{
@@ -866,7 +939,6 @@ public class EditorFrame extends JInternalFrame
 				}
 				
 				updateCategoryPanel();
-				handCalculations.update();
 				SwingUtilities.invokeLater(() -> {
 					CategoryPanel category = event.nameChanged() ? getCategory(event.newName()) : getCategory(e.categoryName());
 					switchCategoryBox.setSelectedItem(category.getCategoryName());
@@ -936,9 +1008,11 @@ public class EditorFrame extends JInternalFrame
 		worker.execute();
 		progressDialog.setLocationRelativeTo(parent);
 		progressDialog.setVisible(true);
+		boolean loaded = false;
 		try
 		{
 			worker.get();
+			loaded = true;
 		}
 		catch (InterruptedException | ExecutionException e)
 		{
@@ -946,7 +1020,26 @@ public class EditorFrame extends JInternalFrame
 			deck.clear();
 			categoriesContainer.removeAll();
 		}
-		originalDeck.addAll(deck);
+		originalDeck = deck.snapshot();
+		if (loaded)
+		{
+			try
+			{
+				if (DeckJournal.hasChanges(f))
+				{
+					String msg = "Deck \"" + f.getName() + "\" has changes that were not saved when it was last open.  Recover them?";
+					if (JOptionPane.showConfirmDialog(parent, msg, "Recover Changes", JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION)
+						DeckJournal.replay(f, deck, parent.inventory());
+					else
+						DeckJournal.discard(f);
+				}
+			}
+			catch (IOException e)
+			{
+				JOptionPane.showMessageDialog(parent, "Error recovering changes to " + f.getName() + ": " + e.getMessage() + ".", "Error", JOptionPane.ERROR_MESSAGE);
+			}
+			attachJournal(f);
+		}
 		listTabs.setSelectedIndex(MAIN_TABLE);
 		hand.refresh();
 	}
@@ -1005,7 +1098,7 @@ public class EditorFrame extends JInternalFrame
 		CategorySpec spec = null;
 		do
 		{
-			spec = CategoryEditorPanel.showCategoryEditor(this, spec);
+			spec = CategoryEditorPanel.showCategoryEditor(this, spec, parent.inventory());
 			if (spec != null && deck.containsCategory(spec.getName()))
 				JOptionPane.showMessageDialog(this, "Categories must have unique names.", "Error", JOptionPane.ERROR_MESSAGE);
 		} while (spec != null && deck.containsCategory(spec.getName()));
@@ -1282,7 +1375,7 @@ public class EditorFrame extends JInternalFrame
 					"Error", JOptionPane.ERROR_MESSAGE);
 		else
 		{
-			CategorySpec spec = CategoryEditorPanel.showCategoryEditor(this, toEdit);
+			CategorySpec spec = CategoryEditorPanel.showCategoryEditor(this, toEdit, parent.inventory());
 			if (spec != null)
 				editCategory(toEdit, spec);
 		}
@@ -1348,6 +1441,27 @@ public class EditorFrame extends JInternalFrame
 		return deck.containsCategory(name);
 	}
 	
+	/**
+	 * Test some cards against the deck's categories again, such as after their tags
+	 * have changed, and update the category panels if any of them joined or left a
+	 * category.
+	 * 
+	 * @param cards Cards to test
+	 */
+	public void retestCards(Collection<? extends Card> cards)
+	{
+		if (deck.retest(cards))
+		{
+			for (CategoryPanel c: categoryPanels)
+			{
+				((AbstractTableModel)c.table.getModel()).fireTableDataChanged();
+				c.update();
+			}
+			updateCategoryPanel();
+			handCalculations.update();
+		}
+	}
+	
 	/**
 	 * Update the categories combo box with all of the current categories.
 	 */
@@ -1379,35 +1493,17 @@ public class EditorFrame extends JInternalFrame
 	 */
 	public void updateStats()
 	{
-		countLabel.setText("Total cards: " + deck.total());
-		landLabel.setText("Lands: " + deck.land());
-		nonlandLabel.setText("Nonlands: " + deck.nonland());
+		countLabel.setText("Total cards: " + stats.total());
+		landLabel.setText("Lands: " + stats.land());
+		nonlandLabel.setText("Nonlands: " + stats.nonland());
 
-		double avgCMC = 0.0;
-		for (Card card: deck)
-			if (!card.typeContains("land"))
-				avgCMC += card.minCmc()*deck.getData(card).count();
-		if (deck.nonland() > 0)
-			avgCMC /= deck.nonland();
+		double avgCMC = stats.meanCmc();
 		if ((int)avgCMC == avgCMC)
 			avgCMCLabel.setText("Average CMC: " + (int)avgCMC);
 		else
 			avgCMCLabel.setText(String.format("Average CMC: %.2f", avgCMC));
 		
-		double medCMC = 0.0;
-		List<Double> cmc = new ArrayList<Double>();
-		for (Card card: deck)
-			if (!card.typeContains("land"))
-				for (int i = 0; i < deck.getData(card).count(); i++)
-					cmc.add(card.minCmc());
-		Collections.sort(cmc);
-		if (!cmc.isEmpty())
-		{
-			if (cmc.size()%2 == 0)
-				medCMC = (cmc[cmc.size()/2 - 1] + cmc[cmc.size()/2])/2;
-			else
-				medCMC = cmc[cmc.size()/2];
-		}
+		double medCMC = stats.medianCmc();
 		if ((int)medCMC == medCMC)
 			medCMCLabel.setText("Median CMC: " + (int)medCMC);
 		else
@@ -1462,8 +1558,7 @@ public class EditorFrame extends JInternalFrame
 			return false;
 		else
 		{
-			for (Map.Entry<Card, Integer> entry: cards.entrySet())
-				deck.add(entry.getKey(), entry.getValue());
+			deck.applyAll(cards);
 			return true;
 		}
 	}
@@ -1486,11 +1581,29 @@ public class EditorFrame extends JInternalFrame
 		else
 		{
 			for (Card c: toRemove)
-				removed[c] = deck.remove(c, n);
+				removed[c] = -n;
+			Map<Card, Integer> changed = deck.applyAll(removed);
+			for (Card c: toRemove)
+				removed[c] = changed.containsKey(c) ? -changed[c] : 0;
 			return removed;
 		}
 	}
 	
+	/**
+	 * Change the numbers of copies of cards in the deck back to what they were when a
+	 * snapshot was taken.  The current selections for any cards remaining in the category
+	 * and main tables are maintained.  Don't update the undo buffer.
+	 * 
+	 * @param snapshot Snapshot of the deck to restore
+	 * @return <code>true</code> if the deck changed as a result, and <code>false</code>
+	 * otherwise.
+	 */
+	private boolean restore(Deck.Snapshot snapshot)
+	{
+		saveSelectedCards();
+		return !deck.restore(snapshot).isEmpty();
+	}
+	
 	/**
 	 * Save the list of selected cards from the active table for later selection
 	 * restoration.
@@ -1536,7 +1649,67 @@ public class EditorFrame extends JInternalFrame
 	public boolean addCards(List<Card> toAdd, int n)
 	{
 		Map<Card, Integer> cards = toAdd.stream().collect(Collectors.toMap((c) -> c, (c) -> n));
-		return performAction(() -> !deleteCards(toAdd, n).isEmpty(), () -> insertCards(cards));
+		return performCardAction(() -> insertCards(cards));
+	}
+	
+	/**
+	 * Add the cards in a decklist to the deck all at once.  Each line of the decklist
+	 * should contain a card name, which can be preceded by a number of copies (with
+	 * or without an "x") and followed by an expansion code in parentheses.  Blank lines
+	 * and lines starting with "//" or "#" are ignored.  Names are matched ignoring case
+	 * and special characters, and if there is no exact match, short names must match
+	 * exactly while longer ones can have a few typos.  The most recent printing of each
+	 * card is used unless an expansion is given.  Lines with a number of copies that
+	 * is zero or too large are not imported.
+	 * 
+	 * @param decklist Decklist to import
+	 * @return A list of the lines of the decklist whose cards could not be found or
+	 * that could not be read.
+	 */
+	public List<String> importDecklist(String decklist)
+	{
+		Map<Card, Integer> cards = new HashMap<Card, Integer>();
+		List<String> unresolved = new ArrayList<String>();
+		for (String line: decklist.split("\\r?\\n"))
+		{
+			String trimmed = line.trim();
+			if (trimmed.isEmpty() || trimmed.startsWith("//") || trimmed.startsWith("#"))
+				continue;
+			Matcher m = DECKLIST_LINE.matcher(trimmed);
+			if (!m.matches())
+			{
+				unresolved.add(line);
+				continue;
+			}
+			int count;
+			try
+			{
+				count = m.group(1) == null ? 1 : Integer.parseInt(m.group(1));
+			}
+			catch (NumberFormatException e)
+			{
+				count = 0;
+			}
+			if (count < 1)
+			{
+				unresolved.add(line);
+				continue;
+			}
+			String name = m.group(2).replaceAll("\\s*/+\\s*", " // ");
+			List<Card> printings = parent.inventory().findByName(name, Math.min(MAX_NAME_DISTANCE, name.length()/4));
+			Card printing = null;
+			if (m.group(3) != null)
+				printing = printings.stream().filter((c) -> c.expansion().code.equalsIgnoreCase(m.group(3))).findFirst().orElse(null);
+			if (printing == null)
+				printing = printings.stream().max(Comparator.comparing((Card c) -> c.expansion().releaseDate)).orElse(null);
+			if (printing == null)
+				unresolved.add(line);
+			else
+				cards.merge(printing, count, Integer::sum);
+		}
+		if (!cards.isEmpty())
+			performCardAction(() -> insertCards(cards));
+		return unresolved;
 	}
 	
 	/**
@@ -1583,8 +1756,7 @@ public class EditorFrame extends JInternalFrame
 	 */
 	public boolean removeCards(Collection<Card> toRemove, int n)
 	{
-		Map<Card, Integer> removed = toRemove.stream().collect(Collectors.toMap(Function.identity(), (c) -> Math.min(n, deck.getData(c).count())));
-		return performAction(() -> insertCards(removed), () -> !deleteCards(toRemove, n).isEmpty());
+		return performCardAction(() -> deleteCards(toRemove, n));
 	}
 
 	/**
@@ -1614,10 +1786,7 @@ public class EditorFrame extends JInternalFrame
 		if (deck.contains(c))
 		{
 			if (n != deck.getData(c).count())
-			{
-				int old = deck.getData(c).count();
-				performAction(() -> deck.set(c, old), () -> deck.set(c, n));
-			}
+				performCardAction(() -> deck.set(c, n));
 		}
 		else
 			addCard(c, n);
@@ -1739,28 +1908,23 @@ public class EditorFrame extends JInternalFrame
 	{
 		try
 		{
-			deck.save(f);
-			String changes = "";
-			for (Card c: originalDeck)
-				if (deck.getData(c).count() < originalDeck.getData(c).count())
-					changes += ("-" + (originalDeck.getData(c).count() - deck.getData(c).count()) + "x " + c.unifiedName() + " (" + c.expansion().name + ")\n");
-			for (Card c: deck)
-				if (originalDeck.getData(c).count() < deck.getData(c).count())
-					changes += ("+" + (deck.getData(c).count() - originalDeck.getData(c).count()) + "x " + c.unifiedName() + " (" + c.expansion().name + ")\n");
+			Deck.Snapshot current = deck.snapshot();
+			DeckDiff changes = new DeckDiff(originalDeck, current);
+			StringBuilder section = new StringBuilder();
 			if (!changes.isEmpty())
 			{
 				SimpleDateFormat format = new SimpleDateFormat("MMMM d, yyyy HH:mm:ss");
-				changelogArea.append("~~~~~" + format.format(new Date()) + "~~~~~\n");
-				changelogArea.append(changes + "\n");
+				section.append("~~~~~").append(format.format(new Date())).append("~~~~~\n");
+				changes.write(section);
+				section.append('\n');
 			}
-			PrintWriter wr = new PrintWriter(new OutputStreamWriter(new FileOutputStream(f, true), "UTF8"));
-			wr.print(changelogArea.getText());
-			wr.close();
+			DeckFile.save(f, deck, changelogArea.getText() + section, SettingsDialog.getAsBoolean(SettingsDialog.EDITOR_COMPRESS));
+			changelogArea.append(section.toString());
 			
-			originalDeck = new Deck();
-			originalDeck.addAll(deck);
+			originalDeck = current;
 			unsaved = false;
 			setFile(f);
+			attachJournal(f);
 			return true;
 		}
 		catch (IOException e)
@@ -1836,7 +2000,11 @@ public class EditorFrame extends JInternalFrame
 			{
 			case JOptionPane.YES_OPTION:
 				parent.save(EditorFrame.this);
+				// Keep the frame and its journal if the deck couldn't be saved
+				if (unsaved)
+					return false;
 			case JOptionPane.NO_OPTION:
+				detachJournal();
 				dispose();
 				return true;
 			case JOptionPane.CANCEL_OPTION: case JOptionPane.CLOSED_OPTION:
@@ -1847,11 +2015,48 @@ public class EditorFrame extends JInternalFrame
 		}
 		else
 		{
+			detachJournal();
 			dispose();
 			return true;
 		}
 	}
 	
+	/**
+	 * Start recording changes to the deck in the journal for a file.  If changes were
+	 * being recorded in a journal already, they are discarded, since this should only
+	 * be done when the deck has just been loaded or saved.
+	 * 
+	 * @param f File whose journal should record changes
+	 */
+	private void attachJournal(File f)
+	{
+		detachJournal();
+		journal = new DeckJournal(f, deck);
+		deck.addDeckListener(journal);
+		journalTimer.start();
+	}
+	
+	/**
+	 * Stop recording changes to the deck and discard the ones that have been recorded.
+	 */
+	private void detachJournal()
+	{
+		journalTimer.stop();
+		if (journal != null)
+		{
+			deck.removeDeckListener(journal);
+			try
+			{
+				journal.clear();
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+			journal = null;
+		}
+	}
+	
 	/**
 	 * Set the settings of this EditorFrame
 	 * 
@@ -1908,32 +2113,81 @@ public class EditorFrame extends JInternalFrame
 	 */
 	private boolean performAction(BooleanSupplier undo, BooleanSupplier redo)
 	{
-		undoBuffer.push(new UndoableAction()
+		if (redo.getAsBoolean())
 		{
-			@Override
-			public boolean undo()
+			pushAction(new UndoableAction()
 			{
-				return undo.getAsBoolean();
-			}
+				@Override
+				public boolean undo()
+				{
+					return undo.getAsBoolean();
+				}
 
-			@Override
-			public boolean redo()
-			{
-				return redo.getAsBoolean();
-			}	
-		});
-		if (undoBuffer.peek().redo())
-		{
-			redoBuffer.clear();
+				@Override
+				public boolean redo()
+				{
+					return redo.getAsBoolean();
+				}	
+			});
 			return true;
 		}
 		else
-		{
-			undoBuffer.pop();
 			return false;
+	}
+	
+	/**
+	 * Perform an action that changes the numbers of copies of cards in the deck.  Then,
+	 * if the deck changed, push it onto the undo buffer and clear the redo buffer.  The
+	 * action is recorded as snapshots of the deck from before and after it, so undoing
+	 * and redoing it just restore the snapshots.
+	 * 
+	 * @param action Action to perform
+	 * @return <code>true</code> if the deck changed as a result of the action, and
+	 * <code>false</code> otherwise.
+	 */
+	private boolean performCardAction(Runnable action)
+	{
+		Deck.Snapshot before = deck.snapshot();
+		action.run();
+		Deck.Snapshot after = deck.snapshot();
+		if (before.changes(after).isEmpty())
+			return false;
+		else
+		{
+			pushAction(new UndoableAction()
+			{
+				@Override
+				public boolean undo()
+				{
+					return restore(before);
+				}
+
+				@Override
+				public boolean redo()
+				{
+					return restore(after);
+				}
+			});
+			return true;
 		}
 	}
 	
+	/**
+	 * Push an action that has already been performed onto the undo buffer and clear
+	 * the redo buffer.  If the undo buffer is longer than the maximum number of
+	 * actions that can be undone, the oldest ones are dropped.
+	 * 
+	 * @param action Action to push
+	 */
+	private void pushAction(UndoableAction action)
+	{
+		undoBuffer.push(action);
+		redoBuffer.clear();
+		int depth = SettingsDialog.getAsInt(SettingsDialog.EDITOR_UNDO_DEPTH);
+		while (undoBuffer.size() > Math.max(depth, 1))
+			undoBuffer.remove(0);
+	}
+	
 	/**
 	 * Popup menu listener for a CardTable of this EditorFrame.  It controls the visibility
 	 * and contents of the include and exclude options.
@@ -2091,12 +2345,7 @@ public class EditorFrame extends JInternalFrame
 				{
 					@SuppressWarnings("unchecked")
 					Map<Card, Integer> data = (Map<Card, Integer>)supp.getTransferable().getTransferData(Deck.entryFlavor);
-					return performAction(() -> {
-							boolean undone = false;
-							for (Map.Entry<Card, Integer> entry: data.entrySet())
-								undone |= !deleteCards(Arrays.asList(entry.getKey()), entry.getValue()).isEmpty();
-							return undone;
-						}, () -> insertCards(data));
+					return performCardAction(() -> insertCards(data));
 				}
 				else if (supp.isDataFlavorSupported(Card.cardFlavor))
 				{
@@ -2218,35 +2467,31 @@ public class EditorFrame extends JInternalFrame
 		@Override
 		protected Void doInBackground() throws Exception
 		{
-			try (BufferedReader rd = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF8")))
+			opening = true;
+			DeckFile deckFile = DeckFile.open(file);
+			Map<Card, Integer> cards = new LinkedHashMap<Card, Integer>();
+			Map<Card, Date> dates = new HashMap<Card, Date>();
+			for (DeckFile.CardRecord card: deckFile.cards())
 			{
-				opening = true;
-				int cards = Integer.valueOf(rd.readLine().trim());
-				for (int i = 0; i < cards; i++)
+				Card c = parent.getCard(card.id);
+				if (c != null)
 				{
-					if (isCancelled())
-						return null;
-					String[] card = rd.readLine().trim().split("\t");
-					Card c = parent.getCard(card[0]);
-					if (c != null)
-						deck.add(c, Integer.valueOf(card[1]), Deck.DATE_FORMAT.parse(card[2]));
-					else
-						throw new IllegalStateException("Card with UID \"" + card[0] + "\" not found");
-					publish(50*(i + 1)/cards);
-				}
-				int categories = Integer.valueOf(rd.readLine().trim());
-				for (int i = 0; i < categories; i++)
-				{
-					if (isCancelled())
-						return null;
-					CategorySpec spec = new CategorySpec(rd.readLine(), parent.inventory());
-					addCategory(spec);
-					publish(50 + 50*(i + 1)/categories);
+					cards[c] = card.count;
+					dates[c] = card.added;
 				}
-				String line;
-				while ((line = rd.readLine()) != null)
-					changelogArea.append(line + "\n");
+				else
+					throw new IllegalStateException("Card with UID \"" + card.id + "\" not found");
 			}
+			publish(25);
+			if (isCancelled())
+				return null;
+			List<CategorySpec> categories = deckFile.categories(parent.inventory());
+			publish(50);
+			if (isCancelled())
+				return null;
+			deck.load(cards, dates, categories);
+			publish(100);
+			changelogArea.append(deckFile.changelog());
 			return null;
 		}
 		
@@ -0,0 +1,120 @@
+package editor.gui.filter;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.util.List;
+
+import javax.swing.BorderFactory;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.table.AbstractTableModel;
+
+import editor.database.card.Card;
+import editor.filter.Filter;
+import editor.filter.FilterProfile;
+
+/**
+ * This class represents a panel that shows the results of profiling a Filter
+ * over a collection of Cards, with one row for each node in the Filter's tree
+ * showing how many Cards it tested, how many passed, and how long it took.
+ * 
+ * @author Alec Roelke
+ */
+@SuppressWarnings("serial")
+public class FilterProfilePanel extends JPanel
+{
+	/**
+	 * Names of the columns of the table.
+	 */
+	private static final String[] COLUMNS = {"Filter", "Evaluated", "Passed", "Pass Rate", "Total (ms)", "Self (ms)"};
+	/**
+	 * Amount to indent each level of the Filter tree, in spaces.
+	 */
+	private static final int INDENT = 4;
+	
+	/**
+	 * Profile a Filter over a collection of Cards and show the results in a dialog.
+	 * 
+	 * @param parent Component to be used to determine the Frame of the dialog
+	 * @param filter Filter to profile
+	 * @param cards Cards to test
+	 */
+	public static void showProfile(Component parent, Filter filter, Iterable<? extends Card> cards)
+	{
+		FilterProfilePanel panel = new FilterProfilePanel(FilterProfile.explain(filter, cards));
+		JOptionPane.showMessageDialog(parent, panel, "Explain Filter", JOptionPane.PLAIN_MESSAGE);
+	}
+	
+	/**
+	 * Create a new FilterProfilePanel showing the statistics of a FilterProfile.
+	 * 
+	 * @param profile FilterProfile to show
+	 */
+	public FilterProfilePanel(FilterProfile profile)
+	{
+		super(new BorderLayout());
+		
+		List<FilterProfile.Node> nodes = profile.nodes();
+		JTable table = new JTable(new AbstractTableModel()
+		{
+			@Override
+			public int getRowCount()
+			{
+				return nodes.size();
+			}
+			
+			@Override
+			public int getColumnCount()
+			{
+				return COLUMNS.length;
+			}
+			
+			@Override
+			public String getColumnName(int column)
+			{
+				return COLUMNS[column];
+			}
+			
+			@Override
+			public Object getValueAt(int row, int column)
+			{
+				FilterProfile.Node node = nodes[row];
+				switch (column)
+				{
+				case 0:
+					StringBuilder indent = new StringBuilder();
+					for (int i = 0; i < node.depth()*INDENT; i++)
+						indent.append(' ');
+					return indent.append(node.description()).toString();
+				case 1:
+					return node.evaluations();
+				case 2:
+					return node.passes();
+				case 3:
+					return String.format("%.1f%%", node.passRate()*100);
+				case 4:
+					return String.format("%.3f", node.nanos()/1e6);
+				case 5:
+					return String.format("%.3f", node.selfNanos()/1e6);
+				default:
+					throw new IndexOutOfBoundsException();
+				}
+			}
+		});
+		table.getColumnModel().getColumn(0).setPreferredWidth(300);
+		table.setFillsViewportHeight(true);
+		JScrollPane tablePane = new JScrollPane(table);
+		tablePane.setPreferredSize(new Dimension(700, Math.min(400, table.getRowHeight()*(nodes.size() + 2))));
+		add(tablePane, BorderLayout.CENTER);
+		
+		FilterProfile.Node root = profile.root();
+		JLabel summaryLabel = new JLabel(root.passes() + " of " + root.evaluations() + " cards passed in "
+				+ String.format("%.3f", root.nanos()/1e6) + " ms");
+		summaryLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 5, 0));
+		add(summaryLabel, BorderLayout.NORTH);
+	}
+}
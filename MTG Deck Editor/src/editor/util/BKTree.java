@@ -0,0 +1,179 @@
+package editor.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class is a Burkhard-Keller tree, which finds items whose String keys are
+ * within a maximum edit (Levenshtein) distance of a query.  Each child of a node
+ * is labeled with its distance from that node, so the triangle inequality can be
+ * used to skip every subtree that can't contain a close enough key.
+ * 
+ * @author Alec Roelke
+ *
+ * @param <T> Type of the items in the tree
+ */
+public class BKTree<T>
+{
+	/**
+	 * Compute the Levenshtein distance between two Strings, which is the number
+	 * of insertions, deletions, and substitutions needed to turn one into the
+	 * other.
+	 * 
+	 * @param a First String
+	 * @param b Second String
+	 * @return The edit distance between the two Strings.
+	 */
+	public static int distance(String a, String b)
+	{
+		int[] previous = new int[b.length() + 1];
+		int[] current = new int[b.length() + 1];
+		for (int j = 0; j <= b.length(); j++)
+			previous[j] = j;
+		for (int i = 1; i <= a.length(); i++)
+		{
+			current[0] = i;
+			for (int j = 1; j <= b.length(); j++)
+			{
+				int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+			}
+			int[] temp = previous;
+			previous = current;
+			current = temp;
+		}
+		return previous[b.length()];
+	}
+	
+	/**
+	 * This class represents a node in a BKTree.  It contains all of the items
+	 * with the same key.
+	 * 
+	 * @author Alec Roelke
+	 */
+	private class Node
+	{
+		/**
+		 * Key of this Node.
+		 */
+		private final String key;
+		/**
+		 * Items with this Node's key.
+		 */
+		private final List<T> items;
+		/**
+		 * Children of this Node, indexed by their distance from it.
+		 */
+		private final Map<Integer, Node> children;
+		
+		/**
+		 * Create a new Node.
+		 * 
+		 * @param k Key of the new Node
+		 */
+		private Node(String k)
+		{
+			key = k;
+			items = new ArrayList<T>();
+			children = new HashMap<Integer, Node>();
+		}
+	}
+	
+	/**
+	 * Root of the tree.
+	 */
+	private Node root;
+	/**
+	 * Number of distinct keys in the tree.
+	 */
+	private int size;
+	
+	/**
+	 * Create a new, empty BKTree.
+	 */
+	public BKTree()
+	{
+		root = null;
+		size = 0;
+	}
+	
+	/**
+	 * Add an item to the tree.
+	 * 
+	 * @param key Key to find the item with
+	 * @param item Item to add
+	 */
+	public void add(String key, T item)
+	{
+		if (root == null)
+		{
+			root = new Node(key);
+			size++;
+		}
+		Node node = root;
+		int d;
+		while ((d = distance(key, node.key)) > 0)
+		{
+			Node child = node.children[d];
+			if (child == null)
+			{
+				child = new Node(key);
+				node.children[d] = child;
+				size++;
+			}
+			node = child;
+		}
+		node.items.add(item);
+	}
+	
+	/**
+	 * Find the items whose keys are within a maximum distance of a String.
+	 * 
+	 * @param key String to search for
+	 * @param maxDistance Maximum edit distance of the keys of the items to find
+	 * @return A list of the items whose keys are close enough to the String, with
+	 * the items with the closest keys first.
+	 */
+	public List<T> search(String key, int maxDistance)
+	{
+		List<List<Node>> found = new ArrayList<List<Node>>();
+		for (int i = 0; i <= maxDistance; i++)
+			found.add(new ArrayList<Node>());
+		if (root != null)
+		{
+			Deque<Node> toVisit = new ArrayDeque<Node>();
+			toVisit.push(root);
+			while (!toVisit.isEmpty())
+			{
+				Node node = toVisit.pop();
+				int d = distance(key, node.key);
+				if (d <= maxDistance)
+					found[d].add(node);
+				for (int i = Math.max(1, d - maxDistance); i <= d + maxDistance; i++)
+				{
+					Node child = node.children[i];
+					if (child != null)
+						toVisit.push(child);
+				}
+			}
+		}
+		
+		List<T> items = new ArrayList<T>();
+		for (List<Node> nodes: found)
+			for (Node node: nodes)
+				items.addAll(node.items);
+		return items;
+	}
+	
+	/**
+	 * @return The number of distinct keys in this BKTree.
+	 */
+	public int size()
+	{
+		return size;
+	}
+}
@@ -87,6 +87,36 @@ public enum Comparison
 		}
 	}
 	
+	/**
+	 * Test two numbers according to this Comparison's operation without boxing
+	 * them.
+	 * 
+	 * @param a First value to test
+	 * @param b Second value to test
+	 * @return <code>true</code> if the two values pass the comparison, and
+	 * <code>false</code> otherwise.
+	 */
+	public boolean test(double a, double b)
+	{
+		switch (operator)
+		{
+		case '=':
+			return a == b;
+		case '\u2260':
+			return a != b;
+		case '\u2265':
+			return a >= b;
+		case '\u2264':
+			return a <= b;
+		case '>':
+			return a > b;
+		case '<':
+			return a < b;
+		default:
+			throw new IllegalArgumentException("Illegal comparison " + operator);
+		}
+	}
+	
 	/**
 	 * @return A String representation of this Comparison, which is its operator.
 	 */
@@ -89,4 +89,35 @@ public enum Containment implements BiPredicate<Collection<?>, Collection<?>>
 			throw new IllegalArgumentException("Illegal Containment " + this);
 		}
 	}
+	
+	/**
+	 * Test if the first set of bits contains the bits of the second with this
+	 * Containment's function.  This is equivalent to {@link #test(Collection, Collection)}
+	 * on the sets represented by the bit masks, but doesn't need to iterate over them.
+	 * 
+	 * @param a First set of bits to test
+	 * @param b Second set of bits to test
+	 * @return <code>true</code> if this Containment's function returns true when
+	 * performed on the two operands and <code>false</code> otherwise.
+	 */
+	public boolean test(int a, int b)
+	{
+		switch (this)
+		{
+		case CONTAINS_ANY_OF:
+			return b == 0 || (a & b) != 0;
+		case CONTAINS_NONE_OF:
+			return (a & b) == 0;
+		case CONTAINS_ALL_OF:
+			return (a & b) == b;
+		case CONTAINS_NOT_ALL_OF:
+			return CONTAINS_ANY_OF.test(a, b) && (a & b) != b;
+		case CONTAINS_EXACTLY:
+			return a == b;
+		case CONTAINS_NOT_EXACTLY:
+			return a != b;
+		default:
+			throw new IllegalArgumentException("Illegal Containment " + this);
+		}
+	}
 }
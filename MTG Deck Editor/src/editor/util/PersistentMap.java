@@ -0,0 +1,619 @@
+package editor.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * This class is an immutable map that shares structure between versions.  It is a
+ * hash array mapped trie: each level of the tree uses five bits of the keys' hash codes
+ * to choose a branch, and only the nodes along the path to a changed key are copied when
+ * a new version is created.  That makes adding or removing a key take time logarithmic
+ * with base 32 in the size of the map, and keeping a version around cost nothing until
+ * it diverges from the current one.  Two versions that came from each other can also be
+ * compared quickly, because the subtrees they share can be skipped.
+ * <p>
+ * Keys and values can't be <code>null</code>.
+ *
+ * @author Alec Roelke
+ *
+ * @param <K> Type of the keys of the map
+ * @param <V> Type of the values of the map
+ */
+public class PersistentMap<K, V>
+{
+	/**
+	 * This interface represents an action to perform on a key whose value differs
+	 * between two maps.
+	 *
+	 * @author Alec Roelke
+	 *
+	 * @param <K> Type of the keys of the maps
+	 * @param <V> Type of the values of the maps
+	 */
+	@FunctionalInterface
+	public interface DifferenceConsumer<K, V>
+	{
+		/**
+		 * Perform an action on a key whose value differs between two maps.
+		 *
+		 * @param key Key whose value differs
+		 * @param before Value of the key in the first map, or <code>null</code> if it
+		 * isn't in the first map
+		 * @param after Value of the key in the second map, or <code>null</code> if it
+		 * isn't in the second map
+		 */
+		public void accept(K key, V before, V after);
+	}
+
+	/**
+	 * Number of hash bits used by each level of the tree.
+	 */
+	private static final int BITS = 5;
+	/**
+	 * Mask for getting the hash bits used by a level of the tree.
+	 */
+	private static final int MASK = (1 << BITS) - 1;
+	/**
+	 * The empty map.
+	 */
+	@SuppressWarnings("rawtypes")
+	private static final PersistentMap EMPTY = new PersistentMap(null, 0);
+
+	/**
+	 * @return An empty PersistentMap.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K, V> PersistentMap<K, V> empty()
+	{
+		return EMPTY;
+	}
+
+	/**
+	 * Get the hash of a key, with the high bits mixed into the low ones so that
+	 * the first levels of the tree are well-distributed.
+	 *
+	 * @param key Key to get the hash of
+	 * @return The hash of the key.
+	 */
+	private static int hash(Object key)
+	{
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Report every difference between two subtrees.  Subtrees that are the same object
+	 * are skipped.
+	 *
+	 * @param a First subtree, or <code>null</code> if it is empty
+	 * @param b Second subtree, or <code>null</code> if it is empty
+	 * @param action Action to perform on each differing key
+	 */
+	private static void difference(Node a, Node b, DifferenceConsumer<Object, Object> action)
+	{
+		if (a == b)
+			return;
+		else if (a == null)
+			b.forEach((k, v) -> action.accept(k, null, v));
+		else if (b == null)
+			a.forEach((k, v) -> action.accept(k, v, null));
+		else if (a instanceof BitmapNode && b instanceof BitmapNode)
+		{
+			BitmapNode x = (BitmapNode)a;
+			BitmapNode y = (BitmapNode)b;
+			int bits = x.bitmap | y.bitmap;
+			while (bits != 0)
+			{
+				int bit = Integer.lowestOneBit(bits);
+				bits &= ~bit;
+				boolean inX = (x.bitmap & bit) != 0;
+				boolean inY = (y.bitmap & bit) != 0;
+				int i = inX ? x.index(bit) : -1;
+				int j = inY ? y.index(bit) : -1;
+				if (inX && inY && x.array[i] == null && y.array[j] == null)
+					difference((Node)x.array[i + 1], (Node)y.array[j + 1], action);
+				else if (inX && inY && x.array[i] != null && y.array[j] != null && x.array[i].equals(y.array[j]))
+				{
+					if (!x.array[i + 1].equals(y.array[j + 1]))
+						action.accept(x.array[i], x.array[i + 1], y.array[j + 1]);
+				}
+				else
+				{
+					Map<Object, Object> before = new HashMap<Object, Object>();
+					Map<Object, Object> after = new HashMap<Object, Object>();
+					if (inX)
+						x.slot(i, before::put);
+					if (inY)
+						y.slot(j, after::put);
+					difference(before, after, action);
+				}
+			}
+		}
+		else
+		{
+			Map<Object, Object> before = new HashMap<Object, Object>();
+			Map<Object, Object> after = new HashMap<Object, Object>();
+			a.forEach(before::put);
+			b.forEach(after::put);
+			difference(before, after, action);
+		}
+	}
+
+	/**
+	 * Report every difference between two ordinary maps.
+	 *
+	 * @param before First map
+	 * @param after Second map
+	 * @param action Action to perform on each differing key
+	 */
+	private static void difference(Map<Object, Object> before, Map<Object, Object> after, DifferenceConsumer<Object, Object> action)
+	{
+		for (Map.Entry<Object, Object> e: before.entrySet())
+			if (!e.getValue().equals(after.get(e.getKey())))
+				action.accept(e.getKey(), e.getValue(), after.get(e.getKey()));
+		for (Map.Entry<Object, Object> e: after.entrySet())
+			if (!before.containsKey(e.getKey()))
+				action.accept(e.getKey(), null, e.getValue());
+	}
+
+	/**
+	 * This class represents a node in the tree.  Nodes never change once they are
+	 * created; changing one creates a copy instead.
+	 *
+	 * @author Alec Roelke
+	 */
+	private static abstract class Node
+	{
+		/**
+		 * @param key Key to look for
+		 * @param hash Hash of the key
+		 * @param shift Number of hash bits used by the levels above this one
+		 * @return The value of the key, or <code>null</code> if it isn't in this subtree.
+		 */
+		public abstract Object get(Object key, int hash, int shift);
+
+		/**
+		 * Create a version of this subtree that maps a key to a value.
+		 *
+		 * @param key Key to add
+		 * @param value Value of the key
+		 * @param hash Hash of the key
+		 * @param shift Number of hash bits used by the levels above this one
+		 * @param added Its first element is set to 1 if the key wasn't already in the subtree
+		 * @return The new subtree, or this one if the key already had the value.
+		 */
+		public abstract Node put(Object key, Object value, int hash, int shift, int[] added);
+
+		/**
+		 * Create a version of this subtree without a key.
+		 *
+		 * @param key Key to remove
+		 * @param hash Hash of the key
+		 * @param shift Number of hash bits used by the levels above this one
+		 * @return The new subtree, this one if it doesn't contain the key, or
+		 * <code>null</code> if the new subtree is empty.
+		 */
+		public abstract Node remove(Object key, int hash, int shift);
+
+		/**
+		 * Perform an action on each key and value in this subtree.
+		 *
+		 * @param action Action to perform
+		 */
+		public abstract void forEach(BiConsumer<Object, Object> action);
+	}
+
+	/**
+	 * This class represents a branch of the tree.  It has a slot for each set bit of
+	 * its bitmap, and each slot contains either a key and its value or <code>null</code>
+	 * and a child node.
+	 *
+	 * @author Alec Roelke
+	 */
+	private static class BitmapNode extends Node
+	{
+		/**
+		 * Node with no slots.
+		 */
+		private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+		/**
+		 * Bits corresponding to the slots this node has.
+		 */
+		private final int bitmap;
+		/**
+		 * Keys and values or child nodes of the slots, two elements per slot.
+		 */
+		private final Object[] array;
+
+		/**
+		 * Create a new BitmapNode.
+		 *
+		 * @param b Bits of the new node's slots
+		 * @param a Contents of the new node's slots
+		 */
+		private BitmapNode(int b, Object[] a)
+		{
+			bitmap = b;
+			array = a;
+		}
+
+		/**
+		 * @param bit Bit of a slot
+		 * @return The index of the first element of the slot in {@link #array}.
+		 */
+		private int index(int bit)
+		{
+			return 2*Integer.bitCount(bitmap & (bit - 1));
+		}
+
+		/**
+		 * Perform an action on each key and value in a slot.
+		 *
+		 * @param i Index of the first element of the slot
+		 * @param action Action to perform
+		 */
+		private void slot(int i, BiConsumer<Object, Object> action)
+		{
+			if (array[i] == null)
+				((Node)array[i + 1]).forEach(action);
+			else
+				action.accept(array[i], array[i + 1]);
+		}
+
+		/**
+		 * Create a copy of this node with a slot's contents replaced.
+		 *
+		 * @param i Index of the first element of the slot
+		 * @param a New first element of the slot
+		 * @param b New second element of the slot
+		 * @return The new node.
+		 */
+		private BitmapNode with(int i, Object a, Object b)
+		{
+			Object[] copy = array.clone();
+			copy[i] = a;
+			copy[i + 1] = b;
+			return new BitmapNode(bitmap, copy);
+		}
+
+		@Override
+		public Object get(Object key, int hash, int shift)
+		{
+			int bit = 1 << ((hash >>> shift) & MASK);
+			if ((bitmap & bit) == 0)
+				return null;
+			int i = index(bit);
+			if (array[i] == null)
+				return ((Node)array[i + 1]).get(key, hash, shift + BITS);
+			else
+				return key.equals(array[i]) ? array[i + 1] : null;
+		}
+
+		@Override
+		public Node put(Object key, Object value, int hash, int shift, int[] added)
+		{
+			int bit = 1 << ((hash >>> shift) & MASK);
+			int i = index(bit);
+			if ((bitmap & bit) == 0)
+			{
+				Object[] copy = new Object[array.length + 2];
+				System.arraycopy(array, 0, copy, 0, i);
+				copy[i] = key;
+				copy[i + 1] = value;
+				System.arraycopy(array, i, copy, i + 2, array.length - i);
+				added[0] = 1;
+				return new BitmapNode(bitmap | bit, copy);
+			}
+			else if (array[i] == null)
+			{
+				Node child = ((Node)array[i + 1]).put(key, value, hash, shift + BITS, added);
+				return child == array[i + 1] ? this : with(i, null, child);
+			}
+			else if (key.equals(array[i]))
+				return value.equals(array[i + 1]) ? this : with(i, key, value);
+			else
+			{
+				Node child;
+				int otherHash = hash(array[i]);
+				if (otherHash == hash)
+					child = new CollisionNode(hash, new Object[] {array[i], array[i + 1], key, value});
+				else
+					child = EMPTY.put(array[i], array[i + 1], otherHash, shift + BITS, new int[1]).put(key, value, hash, shift + BITS, new int[1]);
+				added[0] = 1;
+				return with(i, null, child);
+			}
+		}
+
+		@Override
+		public Node remove(Object key, int hash, int shift)
+		{
+			int bit = 1 << ((hash >>> shift) & MASK);
+			if ((bitmap & bit) == 0)
+				return this;
+			int i = index(bit);
+			if (array[i] == null)
+			{
+				Node child = ((Node)array[i + 1]).remove(key, hash, shift + BITS);
+				if (child == array[i + 1])
+					return this;
+				else if (child != null)
+					return with(i, null, child);
+			}
+			else if (!key.equals(array[i]))
+				return this;
+
+			if (bitmap == bit)
+				return null;
+			Object[] copy = new Object[array.length - 2];
+			System.arraycopy(array, 0, copy, 0, i);
+			System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+			return new BitmapNode(bitmap & ~bit, copy);
+		}
+
+		@Override
+		public void forEach(BiConsumer<Object, Object> action)
+		{
+			for (int i = 0; i < array.length; i += 2)
+				slot(i, action);
+		}
+	}
+
+	/**
+	 * This class represents a leaf of the tree containing keys whose hashes are all
+	 * the same.
+	 *
+	 * @author Alec Roelke
+	 */
+	private static class CollisionNode extends Node
+	{
+		/**
+		 * Hash of all of the keys in this node.
+		 */
+		private final int hash;
+		/**
+		 * Keys and their values, alternating.
+		 */
+		private final Object[] array;
+
+		/**
+		 * Create a new CollisionNode.
+		 *
+		 * @param h Hash of the keys in the new node
+		 * @param a Keys and values of the new node
+		 */
+		private CollisionNode(int h, Object[] a)
+		{
+			hash = h;
+			array = a;
+		}
+
+		/**
+		 * @param key Key to look for
+		 * @return The index of the key in {@link #array}, or -1 if it isn't there.
+		 */
+		private int find(Object key)
+		{
+			for (int i = 0; i < array.length; i += 2)
+				if (key.equals(array[i]))
+					return i;
+			return -1;
+		}
+
+		@Override
+		public Object get(Object key, int h, int shift)
+		{
+			int i = find(key);
+			return i < 0 ? null : array[i + 1];
+		}
+
+		@Override
+		public Node put(Object key, Object value, int h, int shift, int[] added)
+		{
+			if (h != hash)
+			{
+				BitmapNode branch = new BitmapNode(1 << ((hash >>> shift) & MASK), new Object[] {null, this});
+				return branch.put(key, value, h, shift, added);
+			}
+			int i = find(key);
+			if (i >= 0)
+			{
+				if (value.equals(array[i + 1]))
+					return this;
+				Object[] copy = array.clone();
+				copy[i + 1] = value;
+				return new CollisionNode(hash, copy);
+			}
+			Object[] copy = new Object[array.length + 2];
+			System.arraycopy(array, 0, copy, 0, array.length);
+			copy[array.length] = key;
+			copy[array.length + 1] = value;
+			added[0] = 1;
+			return new CollisionNode(hash, copy);
+		}
+
+		@Override
+		public Node remove(Object key, int h, int shift)
+		{
+			int i = find(key);
+			if (i < 0)
+				return this;
+			else if (array.length == 2)
+				return null;
+			Object[] copy = new Object[array.length - 2];
+			System.arraycopy(array, 0, copy, 0, i);
+			System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+			return new CollisionNode(hash, copy);
+		}
+
+		@Override
+		public void forEach(BiConsumer<Object, Object> action)
+		{
+			for (int i = 0; i < array.length; i += 2)
+				action.accept(array[i], array[i + 1]);
+		}
+	}
+
+	/**
+	 * Root of the tree, or <code>null</code> if the map is empty.
+	 */
+	private final Node root;
+	/**
+	 * Number of keys in the map.
+	 */
+	private final int size;
+
+	/**
+	 * Create a new PersistentMap.
+	 *
+	 * @param r Root of the new map's tree
+	 * @param s Number of keys in the new map
+	 */
+	private PersistentMap(Node r, int s)
+	{
+		root = r;
+		size = s;
+	}
+
+	/**
+	 * @param key Key to look for
+	 * @return <code>true</code> if the key is in this map, and <code>false</code>
+	 * otherwise.
+	 */
+	public boolean containsKey(Object key)
+	{
+		return get(key) != null;
+	}
+
+	/**
+	 * Perform an action on each key whose value differs between this map and another one.
+	 * This is fastest when one of the maps was created from the other, because only the
+	 * parts that don't share structure need to be compared.
+	 *
+	 * @param other Map to compare with
+	 * @param action Action to perform on each differing key, whose "before" value is the
+	 * one in this map and whose "after" value is the one in the other map
+	 */
+	@SuppressWarnings("unchecked")
+	public void difference(PersistentMap<K, V> other, DifferenceConsumer<? super K, ? super V> action)
+	{
+		difference(root, other.root, (k, b, a) -> action.accept((K)k, (V)b, (V)a));
+	}
+
+	/**
+	 * Perform an action on each key and value in this map, in no particular order.
+	 *
+	 * @param action Action to perform
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEach(BiConsumer<? super K, ? super V> action)
+	{
+		if (root != null)
+			root.forEach((k, v) -> action.accept((K)k, (V)v));
+	}
+
+	/**
+	 * @param key Key to look for
+	 * @return The value of the key, or <code>null</code> if it isn't in this map.
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(Object key)
+	{
+		return key == null || root == null ? null : (V)root.get(key, hash(key), 0);
+	}
+
+	/**
+	 * @return <code>true</code> if this map has no keys, and <code>false</code>
+	 * otherwise.
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * @param key Key to remove
+	 * @return A map containing the same keys and values as this one except for the
+	 * given key, or this map if it doesn't contain the key.
+	 */
+	public PersistentMap<K, V> minus(Object key)
+	{
+		if (key == null || root == null)
+			return this;
+		Node r = root.remove(key, hash(key), 0);
+		if (r == root)
+			return this;
+		else if (r == null)
+			return empty();
+		else
+			return new PersistentMap<K, V>(r, size - 1);
+	}
+
+	/**
+	 * @param key Key to add
+	 * @param value Value of the key
+	 * @return A map containing the same keys and values as this one except that the
+	 * given key has the given value, or this map if the key already has that value.
+	 * @throws IllegalArgumentException If the key or value is <code>null</code>
+	 */
+	public PersistentMap<K, V> plus(K key, V value) throws IllegalArgumentException
+	{
+		if (key == null || value == null)
+			throw new IllegalArgumentException("PersistentMap can't contain null keys or values");
+		int[] added = new int[1];
+		Node r = (root == null ? BitmapNode.EMPTY : root).put(key, value, hash(key), 0, added);
+		return r == root ? this : new PersistentMap<K, V>(r, size + added[0]);
+	}
+
+	/**
+	 * @return The number of keys in this map.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return A mutable copy of this map.
+	 */
+	public Map<K, V> toMap()
+	{
+		Map<K, V> map = new HashMap<K, V>();
+		forEach(map::put);
+		return map;
+	}
+
+	/**
+	 * @param other Object to compare with
+	 * @return <code>true</code> if the other Object is a PersistentMap with the same
+	 * keys and values as this one, and <code>false</code> otherwise.
+	 */
+	@Override
+	public boolean equals(Object other)
+	{
+		if (other == this)
+			return true;
+		if (!(other instanceof PersistentMap))
+			return false;
+		PersistentMap<?, ?> o = (PersistentMap<?, ?>)other;
+		if (o.size != size)
+			return false;
+		boolean[] equal = {true};
+		difference(root, o.root, (k, b, a) -> equal[0] = false);
+		return equal[0];
+	}
+
+	/**
+	 * @return The hash code of this PersistentMap, which is the same as that of a
+	 * {@link Map} with the same contents.
+	 */
+	@Override
+	public int hashCode()
+	{
+		int[] h = {0};
+		forEach((k, v) -> h[0] += Objects.hashCode(k) ^ Objects.hashCode(v));
+		return h[0];
+	}
+}
@@ -0,0 +1,139 @@
+package editor.util;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * This class is an index that finds items using prefixes of String keys.  It
+ * is a flattened trie: all of the keys are stored in a single sorted array, so
+ * the keys starting with a prefix form a contiguous range that can be found using
+ * binary search.  This takes much less memory than a tree of nodes and is just as
+ * fast for the small numbers of completions that are usually requested.  It can't
+ * be changed after it is created.
+ * 
+ * @author Alec Roelke
+ *
+ * @param <T> Type of the items in the index
+ */
+public class PrefixIndex<T>
+{
+	/**
+	 * Approximate size in bytes of a String's object header and fields, not counting
+	 * its characters.
+	 */
+	private static final int STRING_OVERHEAD = 40;
+	/**
+	 * Approximate size in bytes of an array's object header.
+	 */
+	private static final int ARRAY_OVERHEAD = 16;
+	/**
+	 * Approximate size in bytes of an object reference.
+	 */
+	private static final int REFERENCE_SIZE = 8;
+	
+	/**
+	 * Keys in sorted order.
+	 */
+	private final String[] keys;
+	/**
+	 * Items corresponding to each key.
+	 */
+	private final Object[] items;
+	
+	/**
+	 * Create a new PrefixIndex.  Each item can be found using any of its keys,
+	 * and items with the same key are found in the order they were given.
+	 * 
+	 * @param c Items to put in the index
+	 * @param k Function giving the keys of each item
+	 */
+	public PrefixIndex(Collection<? extends T> c, Function<? super T, ? extends Collection<String>> k)
+	{
+		List<Map.Entry<String, T>> entries = new ArrayList<Map.Entry<String, T>>();
+		for (T item: c)
+			for (String key: new LinkedHashSet<String>(k.apply(item)))
+				entries.add(new AbstractMap.SimpleImmutableEntry<String, T>(key, item));
+		entries.sort((a, b) -> a.getKey().compareTo(b.getKey()));
+		keys = new String[entries.size()];
+		items = new Object[entries.size()];
+		for (int i = 0; i < entries.size(); i++)
+		{
+			keys[i] = entries[i].getKey();
+			items[i] = entries[i].getValue();
+		}
+	}
+	
+	/**
+	 * Find the first key that is not less than a String.
+	 * 
+	 * @param s String to search for
+	 * @return The index of the first key that is greater than or equal to the String,
+	 * or the number of keys if there is none.
+	 */
+	private int lowerBound(String s)
+	{
+		int low = 0;
+		int high = keys.length;
+		while (low < high)
+		{
+			int mid = (low + high) >>> 1;
+			if (keys[mid].compareTo(s) < 0)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+	
+	/**
+	 * Find the items whose keys begin with a prefix.  Items are returned in order
+	 * of their keys, so items whose keys are the prefix come first, and items are
+	 * only returned once.
+	 * 
+	 * @param prefix Prefix to search for
+	 * @param k Maximum number of items to return
+	 * @return A list containing up to the given number of items whose keys begin
+	 * with the prefix.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> complete(String prefix, int k)
+	{
+		Set<T> completions = new LinkedHashSet<T>();
+		for (int i = lowerBound(prefix); i < keys.length && completions.size() < k && keys[i].startsWith(prefix); i++)
+			completions.add((T)items[i]);
+		return new ArrayList<T>(completions);
+	}
+	
+	/**
+	 * Estimate the amount of memory used by this PrefixIndex.  The estimate counts the
+	 * arrays holding keys and items and the distinct key Strings, even if they are
+	 * shared with other objects, but not the items themselves.
+	 * 
+	 * @return The approximate number of bytes used by this PrefixIndex.
+	 */
+	public long memoryEstimate()
+	{
+		long bytes = 2*(ARRAY_OVERHEAD + (long)REFERENCE_SIZE*keys.length);
+		Map<String, Boolean> counted = new IdentityHashMap<String, Boolean>();
+		for (String key: keys)
+			if (counted.put(key, true) == null)
+				bytes += STRING_OVERHEAD + ARRAY_OVERHEAD + 2L*key.length();
+		return bytes;
+	}
+	
+	/**
+	 * @return The number of keys in this PrefixIndex, counting each key of each item
+	 * separately.
+	 */
+	public int size()
+	{
+		return keys.length;
+	}
+}